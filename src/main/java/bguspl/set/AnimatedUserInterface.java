@@ -0,0 +1,169 @@
+package bguspl.set;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A UserInterface decorator that plays the card moves as an animation, without holding back the game.
+ * The game changes the table at full speed, and the calls that draw on the table's slots (cards, tokens and the
+ * winner announcement, which replaces the table) are queued and replayed in order by a daemon thread, which waits
+ * tableDelayMillis before drawing each card placement or removal. The other calls (timer, scores and freezes) are
+ * not tied to the table's contents and are passed through at once.
+ * The lag is bounded: a card move is drawn at most maxLagMillis after it was made, so when the game changes the table
+ * faster than the moves can be animated, the animation speeds up (drawing the late moves without waiting) until it
+ * caught up, instead of falling further and further behind the game.
+ */
+public class AnimatedUserInterface implements UserInterface {
+
+    /**
+     * The user interface that draws the calls.
+     */
+    private final UserInterface ui;
+
+    /**
+     * The time between two card moves on the screen.
+     */
+    private final long delayMillis;
+
+    /**
+     * The maximal time between a card move and its drawing.
+     */
+    private final long maxLagNanos;
+
+    /**
+     * A slot call waiting to be drawn.
+     */
+    private static class Frame {
+
+        final Runnable draw;
+
+        /**
+         * True iff the call is a card move (which waits for the previous move).
+         */
+        final boolean move;
+
+        /**
+         * The time the call was made.
+         */
+        final long madeNanos = System.nanoTime();
+
+        Frame(Runnable draw, boolean move) {
+            this.draw = draw;
+            this.move = move;
+        }
+    }
+
+    /**
+     * The slot calls that were not drawn yet, in the order they were made.
+     */
+    private final BlockingQueue<Frame> frames = new LinkedBlockingQueue<>();
+
+    /**
+     * @param ui           - the user interface that draws the calls.
+     * @param delayMillis  - the time between two card moves on the screen.
+     * @param maxLagMillis - the maximal time between a card move and its drawing (at least delayMillis).
+     */
+    public AnimatedUserInterface(UserInterface ui, long delayMillis, long maxLagMillis) {
+        this.ui = ui;
+        this.delayMillis = delayMillis;
+        maxLagNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, maxLagMillis));
+        Thread animator = new Thread(this::animate, "animator");
+        animator.setDaemon(true);
+        animator.start();
+    }
+
+    /**
+     * The animator thread starts here: draws the queued calls one after the other, each card move delayMillis after
+     * the previous one (or after it was made, if the animation was idle), but no later than maxLagMillis after it was
+     * made.
+     */
+    private void animate() {
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        long lastMove = System.nanoTime();
+        try {
+            while (true) {
+                Frame frame = frames.take();
+                if (frame.move) {
+                    long due = Math.min(Math.max(lastMove, frame.madeNanos) + delayNanos,
+                            frame.madeNanos + maxLagNanos);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0)
+                        LockSupport.parkNanos(this, wait);
+                    lastMove = System.nanoTime();
+                }
+                frame.draw.run();
+            }
+        } catch (InterruptedException ignored) {}
+    }
+
+    /**
+     * Queues a card move.
+     */
+    private void move(Runnable draw) {
+        frames.add(new Frame(draw, true));
+    }
+
+    /**
+     * Queues a slot call that is not a card move (drawn right after the calls before it).
+     */
+    private void draw(Runnable draw) {
+        frames.add(new Frame(draw, false));
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        move(() -> ui.placeCard(card, slot));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        move(() -> ui.removeCard(slot));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        ui.setScore(player, score);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        draw(() -> ui.placeToken(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        draw(ui::removeTokens);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        draw(() -> ui.removeTokens(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        draw(() -> ui.removeToken(player, slot));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        draw(() -> ui.announceWinner(players));
+    }
+}
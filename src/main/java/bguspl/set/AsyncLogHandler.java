@@ -0,0 +1,244 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that keeps formatting and I/O off the game threads.
+ * A thread logging a record only copies its level, message and time into a preallocated entry of a bounded
+ * multi-producer ring buffer (the same scheme as the dealer's ClaimQueue). A background writer thread takes the
+ * entries, formats them with the handler's formatter and writes them through a buffer, flushing once per batch
+ * (whenever the ring is empty) instead of once per record.
+ * Loss is bounded: when the ring is full, the record is dropped (the logging thread never waits) and counted, and
+ * the writer logs how many records were dropped before the next record it writes. Records logged after the handler
+ * was closed are dropped and counted too.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * A record waiting to be written.
+     */
+    private static class Entry {
+        Level level;
+        String message;
+        long millis;
+    }
+
+    /**
+     * How long the writer parks when there is nothing to write.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Entry[] entries;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /**
+     * The next position to be reserved by a logging thread.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The next position to be written (changed only by the writer).
+     */
+    private long head;
+
+    /**
+     * The number of records dropped because the ring was full, and how many of them the writer reported.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    private long droppedReported;
+
+    /**
+     * The number of threads in publish.
+     */
+    private final AtomicInteger publishing = new AtomicInteger();
+
+    private final Writer out;
+    private final Thread writer;
+
+    /**
+     * True once the handler is closed (records published from then on are dropped), and once the records published
+     * before it was closed are all in the ring (the writer then writes them and ends).
+     */
+    private volatile boolean closed, draining;
+
+    /**
+     * @param out       - the stream to write the formatted records to (closed when the handler is closed).
+     * @param formatter - the formatter of the records.
+     * @param capacity  - the minimal number of records waiting to be written (rounded up to a power of 2).
+     */
+    public AsyncLogHandler(OutputStream out, Formatter formatter, int capacity) {
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        setFormatter(formatter);
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        entries = new Entry[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+        writer = new Thread(this::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Adds a record to the ring (may be called by any thread), or drops it if the ring is full or the handler is
+     * closed.
+     */
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) return;
+        publishing.incrementAndGet();
+        try {
+            if (closed || !add(record)) dropped.incrementAndGet();
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return - true iff the record was added, false if the ring is full.
+     */
+    private boolean add(LogRecord record) {
+        long position = tail.get();
+        while (true) {
+            long available = sequences.get((int) position & mask) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (available < 0) {
+                return false; // the writer has not freed this entry yet
+            } else {
+                position = tail.get(); // another thread took this position
+            }
+        }
+
+        int index = (int) position & mask;
+        Entry entry = entries[index];
+        entry.level = record.getLevel();
+        entry.message = record.getMessage();
+        entry.millis = record.getMillis();
+        sequences.set(index, position + 1); // publish to the writer
+        return true;
+    }
+
+    /**
+     * The loop of the writer thread: writes the records in the ring, and flushes when it is empty.
+     */
+    private void write() {
+        LogRecord record = new LogRecord(Level.INFO, null); // reused for formatting every entry
+        boolean written = false;
+        while (true) {
+            boolean closing = draining; // read before draining, so nothing published before close is left behind
+            if (writeNext(record)) {
+                written = true;
+                continue;
+            }
+            if (written) {
+                flushOut();
+                written = false;
+            }
+            if (closing) return;
+            LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+    }
+
+    /**
+     * Writes the oldest record in the ring (writer thread only).
+     *
+     * @param record - the record to format the entry with.
+     * @return       - true iff a record was written (or the dropped records were reported), false if the ring is
+     *                 empty.
+     */
+    private boolean writeNext(LogRecord record) {
+        long reported = dropped.get();
+        if (reported != droppedReported) {
+            writeRecord(record, Level.WARNING, (reported - droppedReported) + " log records were dropped.",
+                    System.currentTimeMillis());
+            droppedReported = reported;
+            return true;
+        }
+
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) return false;
+        Entry entry = entries[index];
+        Level level = entry.level;
+        String message = entry.message;
+        long millis = entry.millis;
+        entry.message = null;
+        sequences.set(index, head + entries.length); // free the entry for the logging threads
+        head++;
+        writeRecord(record, level, message, millis);
+        return true;
+    }
+
+    @SuppressWarnings("deprecation") // setMillis, for Java 8
+    private void writeRecord(LogRecord record, Level level, String message, long millis) {
+        record.setLevel(level);
+        record.setMessage(message);
+        record.setMillis(millis);
+        try {
+            out.write(getFormatter().format(record));
+        } catch (IOException | RuntimeException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private void flushOut() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * @return - the number of records dropped because the ring was full or the handler was closed.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Does nothing: the writer flushes whenever it has written all the records.
+     */
+    @Override
+    public void flush() {}
+
+    /**
+     * Writes the records logged so far, then closes the stream (see Main, which also closes it on exit).
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        while (publishing.get() != 0) // a thread that got past the check of closed is adding its record
+            Thread.yield();
+        draining = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException ignored) {}
+        try {
+            out.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+}
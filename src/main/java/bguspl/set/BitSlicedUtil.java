@@ -0,0 +1,138 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Util implementation that tests sets with bitwise operations on one-hot feature planes.
+ * Each feature value is stored as a single bit, so "all the same" and "all different" become word-wide AND/OR/XOR
+ * expressions. findSets transposes the deck into bit planes (one bit per card) and checks a whole block of 64
+ * candidate third cards for a pair at once.
+ * Sets of more than three cards (i.e. feature size other than 3) fall back to the generic search of UtilImpl.
+ */
+public class BitSlicedUtil extends UtilImpl {
+
+    /**
+     * The one-hot encoding of every card: bit (feature * featureSize + value) is set for each feature.
+     * Null if the encoding does not fit in a long.
+     */
+    private final long[] oneHot;
+
+    /**
+     * The lowest bit of every feature group of the one-hot encoding.
+     */
+    private final long groupLowBits;
+
+    public BitSlicedUtil(Config config) {
+        super(config);
+        if (config.featureCount * config.featureSize <= Long.SIZE) {
+            oneHot = new long[config.deckSize];
+            for (int card = 0; card < config.deckSize; ++card)
+                for (int i = 0; i < config.featureCount; ++i)
+                    oneHot[card] |= 1L << (i * config.featureSize + feature(card, i));
+            long low = 0;
+            for (int i = 0; i < config.featureCount; ++i)
+                low |= 1L << (i * config.featureSize);
+            groupLowBits = low;
+        } else {
+            oneHot = null;
+            groupLowBits = 0;
+        }
+    }
+
+    /**
+     * Collapses each feature group of a one-hot word into its lowest bit (set iff any bit in the group is set).
+     */
+    private long anyInGroup(long bits) {
+        long any = bits;
+        for (int shift = 1; shift < config.featureSize; ++shift)
+            any |= bits >>> shift;
+        return any & groupLowBits;
+    }
+
+    @Override
+    public boolean testSet(int a, int b, int c) {
+        if (oneHot == null) return super.testSet(a, b, c);
+        long x = oneHot[a], y = oneHot[b], z = oneHot[c];
+        long someEqual = (x & y) | (x & z) | (y & z);
+        long notAllEqual = (x ^ y) | (y ^ z);
+        // a feature is illegal iff some two cards agree on it but not all three
+        return (anyInGroup(someEqual) & anyInGroup(notAllEqual)) == 0;
+    }
+
+    /**
+     * Transposes a deck into bit planes: planes[feature * featureSize + value][word] has bit k set iff the card at
+     * position k of the deck has that value.
+     */
+    private long[][] planes(int[] cards) {
+        long[][] planes = new long[config.featureCount * config.featureSize][(cards.length + Long.SIZE - 1) / Long.SIZE];
+        for (int k = 0; k < cards.length; ++k)
+            for (int i = 0; i < config.featureCount; ++i)
+                planes[i * config.featureSize + feature(cards[k], i)][k >>> 6] |= 1L << k;
+        return planes;
+    }
+
+    /**
+     * Finds the sets whose first card is at the given deck position (the other cards being at later positions).
+     * @param cards  - the deck.
+     * @param planes - the bit planes of the deck.
+     * @param first  - the position of the first card.
+     * @param action - called with each set found.
+     */
+    private void setsFrom(int[] cards, long[][] planes, int first, Consumer<? super int[]> action) {
+        int n = cards.length;
+        int words = planes[0].length;
+        long[] candidates = new long[words];
+        for (int j = first + 1; j + 1 < n; ++j) {
+            int firstWord = (j + 1) >>> 6;
+            Arrays.fill(candidates, firstWord, words, -1L);
+            for (int f = 0; f < config.featureCount; ++f) {
+                long[] same = planes[f * config.featureSize + feature(cards[first], f)];
+                long[] other = planes[f * config.featureSize + feature(cards[j], f)];
+                if (same == other)
+                    for (int w = firstWord; w < words; ++w) candidates[w] &= same[w];
+                else
+                    for (int w = firstWord; w < words; ++w) candidates[w] &= ~(same[w] | other[w]);
+            }
+
+            // only k > j, so each set is reported once and in the same order as the generic search
+            candidates[firstWord] &= -1L << ((j + 1) & 63);
+            for (int w = firstWord; w < words; ++w)
+                for (long bits = candidates[w]; bits != 0; bits &= bits - 1) {
+                    int k = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    if (k >= n) break;
+                    int[] set = {cards[first], cards[j], cards[k]};
+                    Arrays.sort(set);
+                    action.accept(set);
+                }
+        }
+    }
+
+    @Override
+    public List<int[]> findSets(List<Integer> deck, int count) {
+        if (config.featureSize != 3) return super.findSets(deck, count);
+
+        LinkedList<int[]> sets = new LinkedList<>();
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        long[][] planes = planes(cards);
+        count = Math.max(count, 1); // like the generic search, the first set is always returned
+        for (int i = 0; i < cards.length && sets.size() < count; ++i)
+            setsFrom(cards, planes, i, sets::add);
+        while (sets.size() > count) sets.removeLast();
+        return sets;
+    }
+
+    @Override
+    public Stream<int[]> streamSets(List<Integer> deck) {
+        if (config.featureSize != 3) return super.streamSets(deck);
+
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        long[][] planes = planes(cards);
+        SetSpliterator.Search search = (first, action) -> setsFrom(cards, planes, first, action);
+        return StreamSupport.stream(new SetSpliterator(search, cards.length, 0, cards.length), false);
+    }
+}
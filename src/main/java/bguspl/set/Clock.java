@@ -0,0 +1,79 @@
+package bguspl.set;
+
+/**
+ * The source of the game time (see Env.clock): the time the dealer counts turns and freezes by, and the waits of the
+ * threads that act on that time.
+ * The waits have the semantics of LockSupport.park: they may return early, so callers check the time again.
+ */
+public interface Clock {
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long millis();
+
+    /**
+     * @return - the current time in nanoseconds, for measuring and ordering events (not related to millis' origin).
+     */
+    long nanos();
+
+    /**
+     * Blocks the calling thread until the time reaches a deadline, or until it is woken by unpark (or spuriously).
+     * @param deadline - the time to wake up at.
+     */
+    void parkUntil(long deadline);
+
+    /**
+     * Wakes up a thread blocked in parkUntil (or makes its next parkUntil return at once).
+     * @param thread - the thread.
+     */
+    void unpark(Thread thread);
+
+    /**
+     * Blocks the calling thread for a period of game time.
+     * @param millis - the time to sleep.
+     * @throws InterruptedException - if the thread is interrupted.
+     */
+    default void sleep(long millis) throws InterruptedException {
+        long deadline = millis() + millis;
+        while (millis() < deadline) {
+            parkUntil(deadline);
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Blocks the calling party until all the other parties wait for a later time, so that it acts on everything that
+     * happened at the current time (see VirtualClock; returns at once on the real clock).
+     */
+    default void settle() {}
+
+    /**
+     * Adds a party the time waits for (see VirtualClock): the calling thread, a thread it is about to start or a
+     * piece of work it hands to another thread (such as a key press), which deregisters when it ends.
+     */
+    default void register() {}
+
+    /**
+     * Removes a party (the calling thread, or a piece of work it finished) from the parties the time waits for.
+     */
+    default void deregister() {}
+
+    /**
+     * Creates the clock selected in the configuration. The virtual clock needs the computer players to wait by it, so
+     * in Pool mode, whose computer players are periodic tasks on the real time, the real clock is used instead.
+     * @param config - the game configuration.
+     * @return       - a new clock.
+     */
+    static Clock create(Config config) {
+        return isVirtual(config) ? new VirtualClock() : new RealClock();
+    }
+
+    /**
+     * @param config - the game configuration.
+     * @return       - true iff create makes virtual clocks.
+     */
+    static boolean isVirtual(Config config) {
+        return config.clockMode.equalsIgnoreCase("virtual") && !config.executionMode.equalsIgnoreCase("pool");
+    }
+}
@@ -30,6 +30,21 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * The engine used to find and test sets (Default, Completion, BitSliced)
+     */
+    public final String utilEngine;
+
+    /**
+     * The minimal number of cards for which findSets searches in parallel (0 to always search sequentially)
+     */
+    public final int parallelSearchThreshold;
+
+    /**
+     * The maximal number of table states whose sets are remembered (0 to disable the cache)
+     */
+    public final int setCacheSize;
+
     /**
      * The number of human players in the game.
      */
@@ -45,6 +60,72 @@ public class Config {
      */
     public final int players;
 
+    /**
+     * The maximal number of claims waiting for the dealer (a claim made while the queue is full is rejected)
+     */
+    public final int claimQueueCapacity;
+
+    /**
+     * How the players and computer players are run (Platform, Pool, Virtual)
+     */
+    public final String executionMode;
+
+    /**
+     * The number of threads running the players in Pool mode (0 for the number of processors)
+     */
+    public final int executionPoolThreads;
+
+    /**
+     * How the game is run (Gui - on the screen, Headless - without a screen, as fast as the players play, Load - the
+     * human players are driven by synthetic key presses to find the load the game saturates at, see LoadGenerator)
+     */
+    public final String runMode;
+
+    /**
+     * The number of games played one after the other in Headless mode
+     */
+    public final int headlessGames;
+
+    /**
+     * The maximal number of headless games running at the same time (see GameHost)
+     */
+    public final int maxConcurrentGames;
+
+    /**
+     * The clock of the game time (Real - the wall clock, Virtual - jumps over waits, for Headless mode other than Pool)
+     */
+    public final String clockMode;
+
+    /**
+     * The number of threads pressing the keys of the human players in Load mode (0 for the number of processors)
+     */
+    public final int loadThreads;
+
+    /**
+     * The total number of key presses per second of the first step of the Load mode saturation search
+     */
+    public final double loadStartRate;
+
+    /**
+     * The number of milliseconds each step of the Load mode saturation search is measured for
+     */
+    public final long loadStepMillis;
+
+    /**
+     * The ratio between the peak and the mean key press rate in Load mode (1 for a steady rate)
+     */
+    public final double loadBurstFactor;
+
+    /**
+     * The number of milliseconds of each burst cycle in Load mode (a burst, then no presses until the cycle ends)
+     */
+    public final long loadBurstMillis;
+
+    /**
+     * The p99 claim to verdict latency, in milliseconds, above which the game is considered saturated in Load mode
+     */
+    public final double loadLatencyLimitMillis;
+
     /**
      * Whether to print out hints to the console or not
      */
@@ -71,10 +152,45 @@ public class Config {
     public final long pointFreezeMillis;
 
     /**
-     * The number of milliseconds to delay before removing/placing a card on the table
+     * The number of milliseconds the screen waits before drawing each card removal/placement (see AnimatedUserInterface).
      */
     public final long tableDelayMillis;
 
+    /**
+     * The number of milliseconds between two key presses of a computer player
+     */
+    public final long computerDelayMillis;
+
+    /**
+     * How computer players choose their key presses (Random - random slots, Seeking - look for sets on the table)
+     */
+    public final String computerStrategy;
+
+    /**
+     * The probability that a Seeking computer player claims a real set (otherwise it deliberately claims a wrong one)
+     */
+    public final double computerSkill;
+
+    /**
+     * The mean number of milliseconds a Seeking computer player takes to react to the table before a claim
+     */
+    public final long computerReactionMillis;
+
+    /**
+     * The standard deviation of the reaction time of a Seeking computer player, in milliseconds
+     */
+    public final long computerReactionDeviationMillis;
+
+    /**
+     * The seed of the random choices of the computer players (each player's random generator is seeded from it)
+     */
+    public final long computerSeed;
+
+    /**
+     * The seed of the deck shuffles (0 for a different deal in every game)
+     */
+    public final long deckSeed;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -173,11 +289,27 @@ public class Config {
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        utilEngine = properties.getProperty("UtilEngine", "Default");
+        parallelSearchThreshold = Integer.parseInt(properties.getProperty("ParallelSearchThreshold", "1000"));
+        setCacheSize = Integer.parseInt(properties.getProperty("SetCacheSize", "4096"));
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
+        claimQueueCapacity = Integer.parseInt(properties.getProperty("ClaimQueueCapacity", "64"));
+        executionMode = properties.getProperty("ExecutionMode", "Platform");
+        executionPoolThreads = Integer.parseInt(properties.getProperty("ExecutionPoolThreads", "0"));
+        runMode = properties.getProperty("RunMode", "Gui");
+        headlessGames = Integer.parseInt(properties.getProperty("HeadlessGames", "1"));
+        maxConcurrentGames = Integer.parseInt(properties.getProperty("MaxConcurrentGames", "1"));
+        loadThreads = Integer.parseInt(properties.getProperty("LoadThreads", "0"));
+        loadStartRate = Double.parseDouble(properties.getProperty("LoadStartRate", "1000"));
+        loadStepMillis = (long) (Double.parseDouble(properties.getProperty("LoadStepSeconds", "2")) * 1000.0);
+        loadBurstFactor = Math.max(1, Double.parseDouble(properties.getProperty("LoadBurstFactor", "1")));
+        loadBurstMillis = (long) (Double.parseDouble(properties.getProperty("LoadBurstSeconds", "1")) * 1000.0);
+        loadLatencyLimitMillis = Double.parseDouble(properties.getProperty("LoadLatencyLimitSeconds", "0.01")) * 1000.0;
+        clockMode = properties.getProperty("ClockMode", "Real");
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
@@ -185,6 +317,13 @@ public class Config {
         pointFreezeMillis = (long) ((Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1"))) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        computerDelayMillis = (long) (Double.parseDouble(properties.getProperty("ComputerDelaySeconds", "0.1")) * 1000.0);
+        computerStrategy = properties.getProperty("ComputerStrategy", "Random");
+        computerSkill = Double.parseDouble(properties.getProperty("ComputerSkill", "0.8"));
+        computerReactionMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionSeconds", "2")) * 1000.0);
+        computerReactionDeviationMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionDeviationSeconds", "0.5")) * 1000.0);
+        computerSeed = Long.parseLong(properties.getProperty("ComputerSeed", "0"));
+        deckSeed = Long.parseLong(properties.getProperty("DeckSeed", "0"));
 
         // ui data
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
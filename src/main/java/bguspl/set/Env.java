@@ -8,11 +8,23 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final SetCache setCache;
+    public final Clock clock;
 
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new SetCache(config));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, SetCache setCache) {
+        this(logger, config, ui, util, setCache, Clock.create(config));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, SetCache setCache, Clock clock) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.setCache = setCache;
+        this.clock = clock;
     }
 }
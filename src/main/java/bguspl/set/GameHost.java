@@ -0,0 +1,237 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.ExecutionModel;
+import bguspl.set.ex.LatencyHistogram;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent headless games in one JVM.
+ * Every game has its own Env (and user interface), Table, Dealer and players, so games share no game state; what
+ * they do share is immutable or thread-safe: the configuration, the Util, the SetCache and the ExecutionModel that
+ * runs the players. At most MaxConcurrentGames games run at a time, and aggregate metrics are kept over all the
+ * games that finished.
+ */
+public class GameHost {
+
+    /**
+     * The outcome of a hosted game.
+     */
+    public static class Result {
+
+        /**
+         * The id of the game (in the order the games were submitted).
+         */
+        public final int game;
+
+        /**
+         * The ids of the winners.
+         */
+        public final int[] winners;
+
+        /**
+         * The final score of each player.
+         */
+        public final int[] scores;
+
+        /**
+         * The number of claims the dealer checked.
+         */
+        public final long claims;
+
+        /**
+         * The time the game took, in milliseconds.
+         */
+        public final long millis;
+
+        Result(int game, int[] winners, int[] scores, long claims, long millis) {
+            this.game = game;
+            this.winners = winners;
+            this.scores = scores;
+            this.claims = claims;
+            this.millis = millis;
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final SetCache setCache;
+
+    /**
+     * Runs the players of all the games.
+     */
+    private final ExecutionModel execution;
+
+    /**
+     * Runs the dealers (one thread per running game).
+     */
+    private final ExecutorService dealers;
+
+    /**
+     * A permit for each game that may run at the same time.
+     */
+    private final Semaphore slots;
+
+    /**
+     * The dealers of the games that are running.
+     */
+    private final Set<Dealer> running = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicLong gamesFinished = new AtomicLong();
+    private final AtomicLong claims = new AtomicLong();
+
+    /**
+     * The claim to verdict latency over all the games that finished.
+     */
+    private final LatencyHistogram claimLatency = new LatencyHistogram();
+
+    private final long startNanos = System.nanoTime();
+
+    public GameHost(Logger logger, Config config, Util util) {
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+        setCache = new SetCache(config);
+        execution = ExecutionModel.create(new Env(logger, config, new HeadlessUserInterface(config), util, setCache));
+        dealers = Executors.newCachedThreadPool();
+        slots = new Semaphore(Math.max(1, config.maxConcurrentGames));
+    }
+
+    /**
+     * Starts a new game, waiting until fewer than MaxConcurrentGames games are running.
+     *
+     * @return - the result of the game, when it is over.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public Future<Result> submit() throws InterruptedException {
+        slots.acquire();
+        int game = nextGame.getAndIncrement();
+        try {
+            return dealers.submit(() -> play(game));
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Plays a game to its end on the calling thread.
+     */
+    private Result play(int game) {
+        Thread.currentThread().setName("dealer-" + game);
+        HeadlessUserInterface ui = new HeadlessUserInterface(config);
+        Env env = new Env(logger, config, ui, util, setCache);
+        Dealer dealer = createGame(env, new Player[config.players], execution);
+        running.add(dealer);
+        long start = System.nanoTime();
+        try {
+            dealer.run();
+        } finally {
+            running.remove(dealer);
+            slots.release();
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        claims.addAndGet(dealer.claimLatency.count());
+        claimLatency.add(dealer.claimLatency);
+        gamesFinished.incrementAndGet();
+        int[] scores = new int[config.players];
+        Arrays.setAll(scores, ui::score);
+        return new Result(game, ui.winners(), scores, dealer.claimLatency.count(), millis);
+    }
+
+    /**
+     * Creates the entities of a game.
+     *
+     * @param env       - the game environment.
+     * @param players   - the array to create the players in.
+     * @param execution - the execution model running the players (null to create one for the game).
+     * @return          - the dealer of the game (not started yet).
+     */
+    static Dealer createGame(Env env, Player[] players, ExecutionModel execution) {
+        return createGame(env, new Table(env), players, execution);
+    }
+
+    /**
+     * Creates the entities of a game at a given table.
+     *
+     * @param env       - the game environment.
+     * @param table     - the (empty) table of the game.
+     * @param players   - the array to create the players in.
+     * @param execution - the execution model running the players (null to create one for the game).
+     * @return          - the dealer of the game (not started yet).
+     */
+    static Dealer createGame(Env env, Table table, Player[] players, ExecutionModel execution) {
+        Dealer dealer = execution == null ? new Dealer(env, table, players) : new Dealer(env, table, players, execution);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        return dealer;
+    }
+
+    /**
+     * Terminates the running games and stops the host's threads.
+     */
+    public void shutdown() {
+        for (Dealer dealer : running)
+            dealer.terminate();
+        dealers.shutdown();
+        try {
+            dealers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ignored) {}
+        execution.shutdown();
+        logger.log(Level.INFO, report());
+    }
+
+    /**
+     * @return - the number of games that are running.
+     */
+    public int runningGames() {
+        return running.size();
+    }
+
+    /**
+     * @return - the number of games that finished.
+     */
+    public long gamesFinished() {
+        return gamesFinished.get();
+    }
+
+    /**
+     * @return - the number of claims checked in the games that finished.
+     */
+    public long claims() {
+        return claims.get();
+    }
+
+    /**
+     * @return - the claim to verdict latency over the games that finished.
+     */
+    public LatencyHistogram claimLatency() {
+        return claimLatency;
+    }
+
+    /**
+     * @return - a summary of the host's throughput since it was created.
+     */
+    public String report() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("Hosted %d games, %d claims in %.3fs (%.2f games/s, %.1f claims/s), latency: %s",
+                gamesFinished(), claims(), seconds, gamesFinished() / seconds, claims() / seconds, claimLatency);
+    }
+}
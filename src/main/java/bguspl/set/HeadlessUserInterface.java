@@ -0,0 +1,92 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A UserInterface that draws nothing, for running games without a screen (see the Headless run mode).
+ * It only records what the game reports at the end: the scores, the winners and the number of card moves.
+ */
+public class HeadlessUserInterface implements UserInterface {
+
+    /**
+     * The last score reported for each player.
+     */
+    private final int[] scores;
+
+    /**
+     * The winners announced (null until the game is over).
+     */
+    private volatile int[] winners;
+
+    /**
+     * The number of cards placed on and removed from the table.
+     */
+    private final AtomicLong cardMoves = new AtomicLong();
+
+    public HeadlessUserInterface(Config config) {
+        scores = new int[config.players];
+    }
+
+    /**
+     * @param player - the player id.
+     * @return       - the last score reported for the player.
+     */
+    public int score(int player) {
+        return scores[player];
+    }
+
+    /**
+     * @return - the ids of the winners, or null if the game is not over.
+     */
+    public int[] winners() {
+        return winners;
+    }
+
+    /**
+     * @return - the number of cards placed on and removed from the table.
+     */
+    public long cardMoves() {
+        return cardMoves.get();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        cardMoves.incrementAndGet();
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        cardMoves.incrementAndGet();
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {}
+
+    @Override
+    public void setElapsed(long millies) {}
+
+    @Override
+    public void setScore(int player, int score) {
+        scores[player] = score;
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {}
+
+    @Override
+    public void placeToken(int player, int slot) {}
+
+    @Override
+    public void removeTokens() {}
+
+    @Override
+    public void removeTokens(int slot) {}
+
+    @Override
+    public void removeToken(int player, int slot) {}
+
+    @Override
+    public void announceWinner(int[] players) {
+        winners = players.clone();
+    }
+}
@@ -0,0 +1,377 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.ExecutionModel;
+import bguspl.set.ex.LatencyHistogram;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives the claim pipeline (Player.keyPressed, the Table and its claim queue, the Dealer) with synthetic key
+ * presses, to find the load it saturates at (see the Load run mode).
+ * Every human player is an input source that presses random slots. The sources are split between LoadThreads driver
+ * threads, so the presses of each player always come from the same thread, and the drivers press at a target total
+ * rate: steadily, or in bursts of LoadBurstFactor times the rate for 1/LoadBurstFactor of every LoadBurstSeconds
+ * cycle, and no presses for the rest of it (so the mean rate is the same).
+ * The rate is open loop: a driver that falls behind presses as fast as it can until it catches up, so a slow game
+ * shows up as dropped presses and latency rather than as a lower offered load.
+ * While the generator runs, games are played back to back on the real clock, on a shared execution model.
+ */
+public class LoadGenerator {
+
+    /**
+     * The measurements of the load at one target rate.
+     */
+    public static class Step {
+
+        /**
+         * The target number of key presses per second.
+         */
+        public final double targetRate;
+
+        /**
+         * The time the step was measured for, in seconds.
+         */
+        public final double seconds;
+
+        /**
+         * The number of key presses made, and how many of them were queued by the players (the rest were ignored:
+         * the player's queue was full, the player was frozen or the table was being changed).
+         */
+        public final long presses, accepted;
+
+        /**
+         * The number of claims rejected because the claim queue was full.
+         */
+        public final long rejectedClaims;
+
+        /**
+         * The mean and maximal number of claims waiting in the claim queue.
+         */
+        public final double meanQueueDepth;
+        public final int maxQueueDepth;
+
+        /**
+         * The claim to verdict latency of the claims checked during the step.
+         */
+        public final LatencyHistogram latency;
+
+        Step(double targetRate, double seconds, long presses, long accepted, long rejectedClaims,
+             double meanQueueDepth, int maxQueueDepth, LatencyHistogram latency) {
+            this.targetRate = targetRate;
+            this.seconds = seconds;
+            this.presses = presses;
+            this.accepted = accepted;
+            this.rejectedClaims = rejectedClaims;
+            this.meanQueueDepth = meanQueueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.latency = latency;
+        }
+
+        /**
+         * @return - the number of key presses ignored by the players.
+         */
+        public long dropped() {
+            return presses - accepted;
+        }
+
+        public double pressesPerSecond() {
+            return presses / seconds;
+        }
+
+        public double claimsPerSecond() {
+            return latency.count() / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("target %.0f presses/s: %.0f presses/s (%.1f%% dropped), %.1f claims/s " +
+                            "(%d rejected), queue depth mean=%.2f max=%d, latency: %s", targetRate,
+                    pressesPerSecond(), presses == 0 ? 0 : 100.0 * dropped() / presses, claimsPerSecond(),
+                    rejectedClaims, meanQueueDepth, maxQueueDepth, latency);
+        }
+    }
+
+    /**
+     * The result of a saturation search.
+     */
+    public static class Saturation {
+
+        /**
+         * True iff the search found the load the game saturates at, false if it stopped (after MAX_STEPS steps, or
+         * because the generator was shut down) while the game still kept up.
+         */
+        public final boolean saturated;
+
+        /**
+         * The last step before the one the game saturated at (the saturation point), or null if the game was
+         * already saturated at the first step or it did not saturate.
+         */
+        public final Step point;
+
+        Saturation(boolean saturated, Step point) {
+            this.saturated = saturated;
+            this.point = point;
+        }
+    }
+
+    /**
+     * A game being played.
+     */
+    private static class Game {
+
+        final Dealer dealer;
+        final Table table;
+        final Player[] players;
+
+        Game(Dealer dealer, Table table, Player[] players) {
+            this.dealer = dealer;
+            this.table = table;
+            this.players = players;
+        }
+    }
+
+    /**
+     * The target key press rate, from the time it was set.
+     */
+    private static class Schedule {
+
+        final double rate;
+        final long startNanos;
+
+        Schedule(double rate, long startNanos) {
+            this.rate = rate;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * How long a driver parks when it made all the presses due.
+     */
+    private static final long PACE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * How often the claim queue depth is sampled.
+     */
+    private static final long SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The maximal number of steps of the saturation search.
+     */
+    private static final int MAX_STEPS = 20;
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final SetCache setCache;
+    private final ExecutionModel execution;
+
+    private final Thread gamesThread;
+    private final Thread[] drivers;
+
+    private volatile boolean running = true;
+    private volatile Game game;
+    private volatile Schedule schedule = new Schedule(0, System.nanoTime());
+
+    private final LongAdder presses = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+
+    /**
+     * The claim latency and the rejected claims of the games that finished (guarded by this).
+     */
+    private final LatencyHistogram finishedLatency = new LatencyHistogram();
+    private long finishedRejected;
+
+    public LoadGenerator(Logger logger, Config config, Util util) {
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+        setCache = new SetCache(config);
+        execution = ExecutionModel.create(new Env(logger, config, new HeadlessUserInterface(config), util, setCache));
+        gamesThread = new Thread(this::playGames, "dealer");
+        int threads = config.loadThreads > 0 ? config.loadThreads : Runtime.getRuntime().availableProcessors();
+        drivers = new Thread[Math.min(threads, config.humanPlayers)];
+        for (int i = 0; i < drivers.length; i++) {
+            int driver = i;
+            drivers[i] = new Thread(() -> drive(driver), "load-" + i);
+        }
+    }
+
+    /**
+     * Starts playing games and pressing keys (at no presses per second, until a step is measured).
+     */
+    public void start() {
+        gamesThread.start();
+        for (Thread driver : drivers)
+            driver.start();
+    }
+
+    /**
+     * Plays games one after the other until the generator is shut down.
+     */
+    private void playGames() {
+        while (running) {
+            Env env = new Env(logger, config, new HeadlessUserInterface(config), util, setCache, new RealClock());
+            Table table = new Table(env);
+            Player[] players = new Player[config.players];
+            Dealer dealer = GameHost.createGame(env, table, players, execution);
+            synchronized (this) {
+                game = new Game(dealer, table, players);
+            }
+            if (running) dealer.run();
+            synchronized (this) {
+                finishedLatency.add(dealer.claimLatency);
+                finishedRejected += table.claims.rejected();
+                game = null;
+            }
+        }
+    }
+
+    /**
+     * The loop of a driver thread: presses the keys of the human players whose id modulo the number of drivers is
+     * the driver's index, one player after the other, as many presses as the schedule made due.
+     */
+    private void drive(int driver) {
+        Random random = new Random(config.computerSeed * 31 + driver);
+        long cycleNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.loadBurstMillis));
+        long burstNanos = (long) (cycleNanos / config.loadBurstFactor);
+        Schedule current = null;
+        long pressed = 0;
+        int source = driver;
+        while (running) {
+            Schedule next = schedule;
+            if (next != current) {
+                current = next;
+                pressed = 0;
+            }
+            long elapsed = System.nanoTime() - current.startNanos;
+            double busyNanos = elapsed / cycleNanos * cycleNanos
+                    + config.loadBurstFactor * Math.min(elapsed % cycleNanos, burstNanos);
+            long due = (long) (current.rate / drivers.length * busyNanos / 1e9);
+
+            for (; pressed < due && running && current == schedule; pressed++) {
+                Game playing = game;
+                if (playing == null) { // between two games: skip the presses due, rather than count them as dropped
+                    pressed = due;
+                    break;
+                }
+                if (playing.players[source].keyPressed(random.nextInt(config.tableSize)))
+                    accepted.increment();
+                presses.increment();
+                source += drivers.length;
+                if (source >= config.humanPlayers) source = driver;
+            }
+            LockSupport.parkNanos(PACE_NANOS);
+        }
+    }
+
+    /**
+     * @return - a copy of the claim latency of all the games so far.
+     */
+    private synchronized LatencyHistogram latency() {
+        LatencyHistogram latency = new LatencyHistogram();
+        latency.add(finishedLatency);
+        Game playing = game;
+        if (playing != null) latency.add(playing.dealer.claimLatency);
+        return latency;
+    }
+
+    /**
+     * @return - the number of claims rejected in all the games so far.
+     */
+    private synchronized long rejectedClaims() {
+        Game playing = game;
+        return finishedRejected + (playing == null ? 0 : playing.table.claims.rejected());
+    }
+
+    /**
+     * Presses keys at a target rate for LoadStepSeconds and measures the game meanwhile.
+     *
+     * @param rate - the total number of key presses per second.
+     * @return     - the measurements.
+     */
+    public Step measure(double rate) {
+        return measure(rate, config.loadStepMillis);
+    }
+
+    private Step measure(double rate, long millis) {
+        long pressesBefore = presses.sum(), acceptedBefore = accepted.sum(), rejectedBefore = rejectedClaims();
+        LatencyHistogram latencyBefore = latency();
+        long start = System.nanoTime(), end = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        schedule = new Schedule(rate, start);
+
+        long samples = 0, depthSum = 0;
+        int maxDepth = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            Game playing = game;
+            if (playing != null) {
+                int depth = playing.table.claims.size();
+                depthSum += depth;
+                maxDepth = Math.max(maxDepth, depth);
+                samples++;
+            }
+            LockSupport.parkNanos(Math.min(SAMPLE_NANOS, end - now));
+        }
+
+        Step step = new Step(rate, (now - start) / 1e9, presses.sum() - pressesBefore,
+                accepted.sum() - acceptedBefore, rejectedClaims() - rejectedBefore,
+                samples == 0 ? 0 : (double) depthSum / samples, maxDepth, latency().since(latencyBefore));
+        schedule = new Schedule(0, now);
+        return step;
+    }
+
+    /**
+     * Measures steps of doubling rates, from LoadStartRate, after a warm up at that rate that is long enough for
+     * every source to press 4 keys (a claim takes 3 tokens, so until then the sources make fewer claims than they
+     * will at the same rate later), until the claims per second grow by less than 10% from
+     * the previous step or the p99 latency exceeds LoadLatencyLimitSeconds (the game saturated), or until MAX_STEPS
+     * steps were measured.
+     *
+     * @param steps - the list to add the measured steps to.
+     * @return      - the result of the search.
+     */
+    public Saturation findSaturation(List<Step> steps) {
+        long limitNanos = (long) (config.loadLatencyLimitMillis * 1e6);
+        Step best = null;
+        double rate = config.loadStartRate;
+        long warmUpMillis = (long) Math.max(config.loadStepMillis, 4000.0 * config.humanPlayers / rate);
+        logger.log(Level.INFO, "Load warm up: " + measure(rate, warmUpMillis));
+        for (int i = 0; i < MAX_STEPS && running; i++, rate *= 2) {
+            Step step = measure(rate);
+            steps.add(step);
+            logger.log(Level.INFO, "Load step: " + step);
+            if (step.pressesPerSecond() < 0.9 * rate)
+                logger.log(Level.WARNING, "The load drivers fell behind the target rate, the load generator may be the bottleneck.");
+
+            boolean tooSlow = step.latency.percentile(0.99) > limitNanos;
+            boolean flat = best != null && step.claimsPerSecond() < 1.1 * best.claimsPerSecond();
+            if (tooSlow || flat) return new Saturation(true, best);
+            best = step;
+        }
+        return new Saturation(false, null);
+    }
+
+    /**
+     * Stops pressing keys, terminates the game being played and stops the generator's threads.
+     */
+    public void shutdown() {
+        running = false;
+        Game playing = game;
+        if (playing != null) playing.dealer.terminate();
+        try {
+            for (Thread driver : drivers)
+                driver.join();
+            gamesThread.join();
+        } catch (InterruptedException ignored) {}
+        execution.shutdown();
+    }
+}
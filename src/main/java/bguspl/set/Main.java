@@ -2,14 +2,19 @@ package bguspl.set;
 
 import bguspl.set.ex.Dealer;
 import bguspl.set.ex.Player;
-import bguspl.set.ex.Table;
 
 import java.awt.*;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.*;
 
 /**
@@ -17,6 +22,11 @@ import java.util.logging.*;
  */
 public class Main {
 
+    /**
+     * The number of log records that may wait to be written before new ones are dropped.
+     */
+    private static final int LOG_BUFFER_CAPACITY = 8192;
+
     /**
      * The game's main function. Creates all data structures and initializes the threads.
      *
@@ -27,16 +37,37 @@ public class Main {
         // create the game environment objects
         Logger logger = initLogger(args.length > 0);
         Config config = new Config(logger, "config.properties");
+        if (config.runMode.equalsIgnoreCase("headless"))
+            runHeadless(logger, config);
+        else if (config.runMode.equalsIgnoreCase("load"))
+            runLoad(logger, config);
+        else
+            runGui(logger, config);
+
+        logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+        for(Handler h:logger.getHandlers())
+            h.close();
+    }
+
+    /**
+     * Plays a single game on the screen.
+     *
+     * @param logger - the logger.
+     * @param config - the game configuration.
+     */
+    private static void runGui(Logger logger, Config config) {
         UserInterfaceImpl ui = new UserInterfaceImpl(logger, config);
         EventQueue.invokeLater(() -> ui.setVisible(true));
-        Env env = new Env(logger, config, ui, new UtilImpl(config));
+        if (config.clockMode.equalsIgnoreCase("virtual"))
+            logger.log(Level.WARNING, "The virtual clock is only used in Headless mode, using the real clock.");
+        // the screen falls at most a whole table's worth of card moves behind the game
+        UserInterface animated = new AnimatedUserInterface(ui, config.tableDelayMillis,
+                config.tableDelayMillis * config.tableSize);
+        Env env = new Env(logger, config, animated, createUtil(config), new SetCache(config), new RealClock());
 
         // create the game entities
         Player[] players = new Player[env.config.players];
-        Table table = new Table(env);
-        Dealer dealer = new Dealer(env, table, players);
-        for (int i = 0; i < players.length; i++)
-            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        Dealer dealer = GameHost.createGame(env, players, null);
         ui.addKeyListener(new InputManager(env, players));
         ui.addWindowListener(new WindowManager(env, dealer));
 
@@ -45,27 +76,104 @@ public class Main {
         dealerThread.start();
 
         try {dealerThread.join();} catch (InterruptedException ignored) {}
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-        for(Handler h:env.logger.getHandlers())
-            h.close();
+    }
+
+    /**
+     * Plays HeadlessGames games on a GameHost, MaxConcurrentGames at a time, without a screen (and without touching
+     * AWT, so it runs on machines with no display), and reports the number of games and claims per second.
+     *
+     * @param logger - the logger.
+     * @param config - the game configuration.
+     */
+    private static void runHeadless(Logger logger, Config config) {
+        System.setProperty("java.awt.headless", "true");
+        if (config.computerPlayers == 0)
+            logger.log(Level.WARNING, "Running headless without computer players: games end only when terminated.");
+        if (config.clockMode.equalsIgnoreCase("virtual") && !Clock.isVirtual(config))
+            logger.log(Level.WARNING, "The virtual clock does not drive the computer players of Pool mode, using the real clock.");
+        if (Clock.isVirtual(config) && config.computerDelayMillis == 0)
+            logger.log(Level.WARNING, "With the virtual clock and no computer delay, the time passes only while they are frozen.");
+
+        GameHost host = new GameHost(logger, config, createUtil(config));
+        List<Future<GameHost.Result>> games = new ArrayList<>();
+        try {
+            for (int game = 0; game < config.headlessGames; game++)
+                games.add(host.submit());
+            for (Future<GameHost.Result> game : games)
+                game.get();
+        } catch (InterruptedException | ExecutionException e) {
+            logger.log(Level.SEVERE, "Headless run failed: " + e);
+        }
+        host.shutdown();
+        System.out.println(host.report());
+    }
+
+    /**
+     * Drives the human players with a LoadGenerator, without a screen, at rising key press rates until the game
+     * saturates, and reports the measurements of every rate and the saturation point.
+     *
+     * @param logger - the logger.
+     * @param config - the game configuration.
+     */
+    private static void runLoad(Logger logger, Config config) {
+        System.setProperty("java.awt.headless", "true");
+        if (config.humanPlayers == 0) {
+            logger.log(Level.SEVERE, "Load mode drives the human players, but there are none.");
+            return;
+        }
+        if (config.clockMode.equalsIgnoreCase("virtual"))
+            logger.log(Level.WARNING, "Load mode measures real time, using the real clock.");
+
+        LoadGenerator generator = new LoadGenerator(logger, config, createUtil(config));
+        List<LoadGenerator.Step> steps = new ArrayList<>();
+        generator.start();
+        LoadGenerator.Saturation saturation = generator.findSaturation(steps);
+        generator.shutdown();
+        for (LoadGenerator.Step step : steps)
+            System.out.println(step);
+        if (!saturation.saturated)
+            System.out.println("Not saturated after " + steps.size() + " steps.");
+        else if (saturation.point == null)
+            System.out.println("Saturated at the first step (" + config.loadStartRate + " presses/s).");
+        else
+            System.out.println(String.format("Saturation point: %.0f presses/s, %.1f claims/s.",
+                    saturation.point.pressesPerSecond(), saturation.point.claimsPerSecond()));
+    }
+
+    /**
+     * Creates the utilities engine selected in the configuration.
+     *
+     * @param config - the game configuration.
+     * @return       - the utilities object.
+     */
+    static Util createUtil(Config config) {
+        switch (config.utilEngine.toLowerCase()) {
+            case "completion":
+                return new PairCompletionUtil(config);
+            case "bitsliced":
+                return new BitSlicedUtil(config);
+            default:
+                return new UtilImpl(config);
+        }
     }
 
     private static Logger initLogger(boolean disableTimestamp) {
 
-        FileHandler fh;
+        OutputStream logFile;
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            fh = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            logFile = new FileOutputStream("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
         java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
         logger.setUseParentHandlers(false);
-        fh.setFormatter(new SimpleFormatter() {
+        // the records are formatted and written by a background thread, so logging never waits for the file
+        Handler fh = new AsyncLogHandler(logFile, new SimpleFormatter() {
             private static final String formatWithTimestamp = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
             private static final String formatWithoutTimestamp = "[%2$-7s] %3$s%n";
 
@@ -77,8 +185,10 @@ public class Main {
                         lr.getMessage()
                 );
             }
-        });
+        }, LOG_BUFFER_CAPACITY);
         logger.addHandler(fh);
+        // closing the window exits the JVM without returning to main, so the records are also written on exit
+        Runtime.getRuntime().addShutdownHook(new Thread(fh::close, "log-close"));
 
         return logger;
     }
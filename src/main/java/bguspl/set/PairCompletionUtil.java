@@ -0,0 +1,154 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Util implementation that finds sets by completing pairs of cards.
+ * When every feature has 3 values, the third card of a set is uniquely determined by the other two (each of its
+ * features is -(a+b) mod 3), so instead of testing every triple we compute it and look it up in the deck.
+ * Decks of at least config.parallelSearchThreshold cards are searched in parallel on the common fork-join pool.
+ * Other feature sizes fall back to the generic search of UtilImpl.
+ */
+public class PairCompletionUtil extends UtilImpl {
+
+    /**
+     * The number of pairs below which a fork-join task stops splitting and searches sequentially.
+     */
+    private static final long PAIRS_PER_TASK = 1 << 16;
+
+    public PairCompletionUtil(Config config) {
+        super(config);
+    }
+
+    /**
+     * Finds the sets whose first card is at the given deck position (the other cards being at later positions).
+     * @param cards    - the deck.
+     * @param position - the position of each card in the deck (-1 if the card is not in it).
+     * @param first    - the position of the first card.
+     * @param action   - called with each set found.
+     */
+    private void setsFrom(int[] cards, int[] position, int first, Consumer<? super int[]> action) {
+        // k > j makes sure each set is reported once, in the same order as the generic search
+        for (int j = first + 1; j < cards.length; ++j) {
+            int k = position[thirdCard(cards[first], cards[j])];
+            if (k > j) {
+                int[] set = {cards[first], cards[j], cards[k]};
+                Arrays.sort(set);
+                action.accept(set);
+            }
+        }
+    }
+
+    /**
+     * Finds the sets whose first card (in deck order) is at a position in [from, to).
+     * @param cards    - the deck.
+     * @param position - the position of each card in the deck (-1 if the card is not in it).
+     * @param from     - the first position to search from (inclusive).
+     * @param to       - the last position to search from (exclusive).
+     * @param count    - the number of sets after which to stop, over all searches sharing found.
+     * @param found    - the number of sets found so far, over all searches sharing it.
+     * @param sets     - the list to add the sets to.
+     */
+    private void search(int[] cards, int[] position, int from, int to, int count, AtomicInteger found, List<int[]> sets) {
+        for (int i = from; i < to && found.get() < count; ++i)
+            setsFrom(cards, position, i, set -> {
+                sets.add(set);
+                found.incrementAndGet();
+            });
+    }
+
+    /**
+     * Returns the position of each card in the deck (-1 if the card is not in it).
+     */
+    private int[] positions(int[] cards) {
+        int[] position = new int[config.deckSize];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < cards.length; ++i)
+            position[cards[i]] = i;
+        return position;
+    }
+
+    /**
+     * A fork-join task searching the sets whose first card is in a range of deck positions.
+     */
+    @SuppressWarnings("serial") // the tasks are never serialized
+    private class SearchTask extends RecursiveTask<LinkedList<int[]>> {
+
+        private final int[] cards;
+        private final int[] position;
+        private final int from;
+        private final int to;
+        private final int count;
+        private final AtomicInteger found;
+
+        SearchTask(int[] cards, int[] position, int from, int to, int count, AtomicInteger found) {
+            this.cards = cards;
+            this.position = position;
+            this.from = from;
+            this.to = to;
+            this.count = count;
+            this.found = found;
+        }
+
+        @Override
+        protected LinkedList<int[]> compute() {
+            LinkedList<int[]> sets = new LinkedList<>();
+            if (found.get() >= count) return sets;
+
+            // the number of pairs starting in [from, to): sum of (n - 1 - i)
+            long pairs = (long) (to - from) * (2L * cards.length - from - to - 1) / 2;
+            if (to - from == 1 || pairs <= PAIRS_PER_TASK) {
+                search(cards, position, from, to, count, found, sets);
+                return sets;
+            }
+
+            int middle = (from + to) >>> 1;
+            SearchTask right = new SearchTask(cards, position, middle, to, count, found);
+            right.fork();
+            sets.addAll(new SearchTask(cards, position, from, middle, count, found).compute());
+            sets.addAll(right.join());
+            return sets;
+        }
+    }
+
+    @Override
+    public List<int[]> findSets(List<Integer> deck, int count) {
+        if (config.featureSize != 3) return super.findSets(deck, count);
+
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        int[] position = positions(cards); // presence map
+        int n = cards.length;
+
+        AtomicInteger found = new AtomicInteger();
+        count = Math.max(count, 1); // like the generic search, the first set is always returned
+        if (config.parallelSearchThreshold <= 0 || n < config.parallelSearchThreshold) {
+            LinkedList<int[]> sets = new LinkedList<>();
+            search(cards, position, 0, n, count, found, sets);
+            while (sets.size() > count) sets.removeLast();
+            return sets;
+        }
+
+        // tasks racing to the count may overshoot it, and the sets kept are not necessarily the first ones
+        LinkedList<int[]> sets = ForkJoinPool.commonPool().invoke(new SearchTask(cards, position, 0, n, count, found));
+        while (sets.size() > count) sets.removeLast();
+        return sets;
+    }
+
+    @Override
+    public Stream<int[]> streamSets(List<Integer> deck) {
+        if (config.featureSize != 3) return super.streamSets(deck);
+
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        int[] position = positions(cards);
+        SetSpliterator.Search search = (first, action) -> setsFrom(cards, position, first, action);
+        return StreamSupport.stream(new SetSpliterator(search, cards.length, 0, cards.length), false);
+    }
+}
@@ -0,0 +1,36 @@
+package bguspl.set;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The wall clock.
+ */
+public class RealClock implements Clock {
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nanos() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void parkUntil(long deadline) {
+        long timeout = deadline - millis();
+        if (timeout > 0) LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    @Override
+    public void unpark(Thread thread) {
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+}
@@ -0,0 +1,97 @@
+package bguspl.set;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the legal sets among collections of cards, keyed by the Zobrist hash of the collection.
+ * The hash of a collection is the XOR of the keys of its cards, so it can be updated incrementally as cards are
+ * added and removed (see Table). The least recently used entries are evicted when the cache is full.
+ * Keys are generated from a fixed seed, so a cache can be shared by several tables (and games) of the same deck.
+ */
+public class SetCache {
+
+    /**
+     * The random key of each card.
+     */
+    private final long[] keys;
+
+    /**
+     * The maximal number of entries kept (0 disables the cache).
+     */
+    private final int capacity;
+
+    /**
+     * The cached set lists, in access order.
+     */
+    private final Map<Long, List<int[]>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SetCache(Config config) {
+        keys = new long[config.deckSize];
+        Random random = new Random(0x5e7c4c4eL);
+        for (int card = 0; card < keys.length; ++card)
+            keys[card] = random.nextLong();
+        capacity = config.setCacheSize;
+        entries = new LinkedHashMap<Long, List<int[]>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<int[]>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param card - the card id.
+     * @return     - the Zobrist key of the card (XOR it into a hash to add or remove the card).
+     */
+    public long key(int card) {
+        return keys[card];
+    }
+
+    /**
+     * Looks up the sets of a collection of cards.
+     * @param hash - the Zobrist hash of the collection.
+     * @return     - the cached (unmodifiable) list of sets, or null if it is not in the cache.
+     */
+    public List<int[]> get(long hash) {
+        if (capacity == 0) return null;
+        List<int[]> sets;
+        synchronized (entries) {
+            sets = entries.get(hash);
+        }
+        (sets == null ? misses : hits).incrementAndGet();
+        return sets;
+    }
+
+    /**
+     * Stores the sets of a collection of cards.
+     * @param hash - the Zobrist hash of the collection.
+     * @param sets - the unmodifiable list of sets.
+     */
+    public void put(long hash, List<int[]> sets) {
+        if (capacity == 0) return;
+        synchronized (entries) {
+            entries.put(hash, sets);
+        }
+    }
+
+    /**
+     * @return - the number of lookups that were found in the cache.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return - the number of lookups that were not found in the cache.
+     */
+    public long misses() {
+        return misses.get();
+    }
+}
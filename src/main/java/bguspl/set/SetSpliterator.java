@@ -0,0 +1,87 @@
+package bguspl.set;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A lazy spliterator over the sets of a deck, ordered by the deck position of their first card.
+ * The sets starting at one position are produced only when needed, and the range of first positions can be split
+ * so that parallel streams get a similar number of card pairs on each side.
+ */
+class SetSpliterator implements Spliterator<int[]> {
+
+    /**
+     * Produces the sets whose first card is at a given deck position (the other cards being at later positions).
+     */
+    interface Search {
+        void setsFrom(int first, Consumer<? super int[]> action);
+    }
+
+    private final Search search;
+
+    /**
+     * The number of cards in the deck.
+     */
+    private final int size;
+
+    /**
+     * The range of first positions left to search: [from, to).
+     */
+    private int from;
+    private final int to;
+
+    /**
+     * Sets found at the last searched position that were not consumed yet.
+     */
+    private final ArrayDeque<int[]> pending = new ArrayDeque<>();
+
+    SetSpliterator(Search search, int size, int from, int to) {
+        this.search = search;
+        this.size = size;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        while (pending.isEmpty() && from < to)
+            search.setsFrom(from++, pending::add);
+        if (pending.isEmpty()) return false;
+        action.accept(pending.poll());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super int[]> action) {
+        while (!pending.isEmpty())
+            action.accept(pending.poll());
+        while (from < to)
+            search.setsFrom(from++, action);
+    }
+
+    @Override
+    public Spliterator<int[]> trySplit() {
+        if (!pending.isEmpty() || to - from < 2) return null;
+
+        // the pairs starting at position i or later are about (size - i)^2 / 2, so split where both halves have as many
+        double head = size - from, tail = size - to;
+        int middle = (int) (size - Math.sqrt((head * head + tail * tail) / 2));
+        middle = Math.max(from + 1, Math.min(middle, to - 1));
+
+        SetSpliterator prefix = new SetSpliterator(search, size, from, middle);
+        from = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        // the number of pairs left to complete, an upper bound on the number of sets
+        return (long) (to - from) * (2L * size - from - to - 1) / 2 + pending.size();
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
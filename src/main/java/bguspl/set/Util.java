@@ -1,6 +1,7 @@
 package bguspl.set;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * An interface for general utilities provided for convenience.
@@ -28,6 +29,24 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Checks if three cards form a legal set, without allocating (see testSet(int[]) method).
+     * @param a - the first card.
+     * @param b - the second card.
+     * @param c - the third card.
+     * @return  - true iff the three cards form a legal set.
+     */
+    boolean testSet(int a, int b, int c);
+
+    /**
+     * Computes the only card that forms a legal set with two given cards.
+     * This is defined when every feature has 3 values (i.e. sets are triples).
+     * @param a - the first card.
+     * @param b - the second card (different from a).
+     * @return  - the id of the third card, or -1 if sets are not triples.
+     */
+    int thirdCard(int a, int b);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      * @param deck  - a collection of cards (may not include null objects).
@@ -35,4 +54,13 @@ public interface Util {
      * @return      - a list of up to count integer arrays, each one contains the card ids of a legal set.
      */
     List<int[]> findSets(List<Integer> deck, int count);
+
+    /**
+     * Lazily streams the sets in the given collection of cards, in the same order as findSets.
+     * Sets are only searched for as the stream is consumed, so short-circuiting operations (e.g. findAny, limit)
+     * stop the search early. Calling parallel() on the stream splits the search between threads.
+     * @param deck - a collection of cards (may not include null objects), which must not change while streaming.
+     * @return     - a stream of integer arrays, each one contains the card ids of a legal set.
+     */
+    Stream<int[]> streamSets(List<Integer> deck);
 }
@@ -1,59 +1,80 @@
 package bguspl.set;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.IntStream;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The implementation of the UserInterface interface.
  */
 public class UtilImpl implements Util {
 
-    private final Config config;
+    protected final Config config;
+
+    /**
+     * The features of every card in the deck, precomputed once: the features of card c are stored in
+     * featureTable[c * featureCount] ... featureTable[c * featureCount + featureCount - 1].
+     */
+    protected final int[] featureTable;
 
     public UtilImpl(Config config) {
         this.config = config;
+        featureTable = new int[config.deckSize * config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card) {
+            int value = card;
+            for (int i = config.featureCount - 1; i >= 0; --i) {
+                featureTable[card * config.featureCount + i] = value % config.featureSize;
+                value /= config.featureSize;
+            }
+        }
     }
 
-    private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
+    /**
+     * Returns a single feature of a card from the precomputed table.
+     * @param card    - the card id.
+     * @param feature - the feature index.
+     * @return        - the feature value.
+     */
+    protected final int feature(int card, int feature) {
+        return featureTable[card * config.featureCount + feature];
     }
 
     @Override
     public int[] cardToFeatures(int card) {
-        int[] features = new int[config.featureCount];
-        cardToFeatures(card, features);
-        return features;
+        int from = card * config.featureCount;
+        return Arrays.copyOfRange(featureTable, from, from + config.featureCount);
     }
 
     @Override
     public int[][] cardsToFeatures(int[] cards) {
-        int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        int[][] features = new int[cards.length][];
+        for (int i = 0; i < cards.length; ++i)
+            features[i] = cardToFeatures(cards[i]);
         return features;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
 
             // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
+            for (int j = 1; j < cards.length; ++j)
+                if (feature(cards[0], i) != feature(cards[j], i)) {
                     sameSame = false;
                     break;
                 }
 
             // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+            for (int j = 1; j < cards.length && butDifferent; ++j)
+                for (int k = j; k < cards.length; ++k)
+                    if (feature(cards[j - 1], i) == feature(cards[k], i)) {
                         butDifferent = false;
                         break;
                     }
@@ -64,28 +85,98 @@ public class UtilImpl implements Util {
     }
 
     @Override
-    public List<int[]> findSets(List<Integer> deck, int count) {
-        LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
-        int r = config.featureSize;
-        int[] combination = new int[r];
-
-        for (int i = 0; i < r; ++i)
-            combination[i] = i;
-
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
+    public boolean testSet(int a, int b, int c) {
+        int fa = a * config.featureCount, fb = b * config.featureCount, fc = c * config.featureCount;
+        for (int i = 0; i < config.featureCount; ++i) {
+            int x = featureTable[fa + i], y = featureTable[fb + i], z = featureTable[fc + i];
+            boolean sameSame = x == y && y == z;
+            boolean butDifferent = x != y && y != z && x != z;
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int thirdCard(int a, int b) {
+        if (config.featureSize != 3) return -1;
+        int fa = a * config.featureCount, fb = b * config.featureCount;
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i)
+            card = card * 3 + (6 - featureTable[fa + i] - featureTable[fb + i]) % 3; // -(a+b) mod 3
+        return card;
+    }
+
+    /**
+     * Lazily walks all combinations of featureSize cards of a deck in lexicographic order, returning the legal sets.
+     */
+    private class CombinationIterator implements Iterator<int[]> {
+
+        private final List<Integer> deck;
+        private final int[] combination;
+
+        /**
+         * The next set to return (null if it was not searched for yet).
+         */
+        private int[] next;
+
+        CombinationIterator(List<Integer> deck) {
+            this.deck = deck;
+            combination = new int[config.featureSize];
+            for (int i = 0; i < combination.length; ++i)
+                combination[i] = i;
+        }
+
+        /**
+         * Moves to the next legal set, returning it (null if there are no more sets).
+         */
+        private int[] advance() {
+            int n = deck.size();
+            int r = combination.length;
+            while (combination[r - 1] < n) {
+                int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+                boolean isSet = testSet(cards);
+
+                // generate next combination in lexicographic order
+                int t = r - 1;
+                while (t != 0 && combination[t] == n - r + t) --t;
+                combination[t]++;
+                for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+
+                if (isSet) return cards;
             }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) next = advance();
+            return next != null;
+        }
 
-            // generate next combination in lexicographic order
-            int t = r - 1;
-            while (t != 0 && combination[t] == n - r + t) --t;
-            combination[t]++;
-            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        @Override
+        public int[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int[] set = next;
+            next = null;
+            return set;
+        }
+    }
+
+    @Override
+    public List<int[]> findSets(List<Integer> deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        Iterator<int[]> it = new CombinationIterator(deck);
+        while (it.hasNext()) {
+            sets.add(it.next());
+            if (sets.size() >= count) return sets;
         }
         return sets;
     }
+
+    @Override
+    public Stream<int[]> streamSets(List<Integer> deck) {
+        Spliterator<int[]> spliterator = Spliterators.spliteratorUnknownSize(new CombinationIterator(deck),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false);
+    }
 }
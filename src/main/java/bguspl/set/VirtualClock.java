@@ -0,0 +1,115 @@
+package bguspl.set;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A discrete-event clock: the time stands still while any of its parties is busy, and when all of them are blocked in
+ * parkUntil it jumps straight to the earliest deadline and wakes up the parties waiting for it. A 60 second turn
+ * timeout thus takes no longer than the work done during it.
+ * The parties are the threads that register (the dealer and the AI threads) and the key presses waiting to be handled
+ * (each press registers when it is queued and deregisters once the player thread handled it), so the time stands
+ * still while a press is on its way.
+ * Several parties may run at the same time, but the dealer settles before it acts (it waits until every other party
+ * waits for a later time) and orders the claims by their time and then by player, so the game does not depend on how
+ * the threads are scheduled: with the same seeds (and a computer delay, so that every press takes game time) a game is
+ * played the same way on every run.
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * The current time (starts at 0).
+     */
+    private long now;
+
+    /**
+     * The number of registered parties.
+     */
+    private int parties;
+
+    /**
+     * The threads blocked in parkUntil and their deadlines.
+     */
+    private final Map<Thread, Long> parked = new HashMap<>();
+
+    @Override
+    public synchronized long millis() {
+        return now;
+    }
+
+    @Override
+    public synchronized long nanos() {
+        return TimeUnit.MILLISECONDS.toNanos(now);
+    }
+
+    @Override
+    public void parkUntil(long deadline) {
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            if (deadline <= now) return;
+            parked.put(thread, deadline);
+            advanceIfIdle();
+        }
+        LockSupport.park(this);
+        synchronized (this) {
+            parked.remove(thread);
+        }
+    }
+
+    @Override
+    public void unpark(Thread thread) {
+        synchronized (this) {
+            parked.remove(thread); // busy from now on, even before it gets to run
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Waits at the current time, until all the other parties are blocked in parkUntil (woken early by unpark, it waits
+     * again).
+     */
+    @Override
+    public void settle() {
+        Thread thread = Thread.currentThread();
+        while (true) {
+            synchronized (this) {
+                if (parked.size() >= parties - 1) return;
+                parked.put(thread, now);
+                advanceIfIdle();
+            }
+            LockSupport.park(this);
+            synchronized (this) {
+                parked.remove(thread);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void register() {
+        parties++;
+    }
+
+    @Override
+    public synchronized void deregister() {
+        parties--;
+        advanceIfIdle();
+    }
+
+    /**
+     * Moves the time to the earliest deadline if all the parties are blocked, and wakes up the threads waiting for it.
+     */
+    private void advanceIfIdle() {
+        if (parked.isEmpty() || parked.size() < parties) return;
+        long next = Long.MAX_VALUE;
+        for (long deadline : parked.values())
+            next = Math.min(next, deadline);
+        now = Math.max(now, next);
+        parked.entrySet().removeIf(entry -> {
+            if (entry.getValue() > now) return false;
+            LockSupport.unpark(entry.getKey());
+            return true;
+        });
+    }
+}
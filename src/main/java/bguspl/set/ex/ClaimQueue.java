@@ -0,0 +1,213 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+import bguspl.set.RealClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded multi-producer / single-consumer ring buffer of set claims.
+ * Players (producers) copy their claim into a preallocated record, and the dealer (the single consumer) copies it
+ * out, so submitting a claim never allocates. Each record has a sequence number that tells whether it is free for
+ * the producer that reserved it or ready for the consumer (see Vyukov's bounded queue), which also publishes the
+ * record contents safely between the threads.
+ * When the buffer is full, offer fails and the claim is rejected (the caller decides what to do with it).
+ */
+public class ClaimQueue {
+
+    /**
+     * A claim of a player that the three slots it put its tokens on form a legal set.
+     */
+    public static class Claim {
+
+        /**
+         * The slots of the claimed set.
+         */
+        public final int[] slots = new int[3];
+
+        /**
+         * The epoch of each slot when the player put its token on it (see Table.epochAt).
+         */
+        public final int[] epochs = new int[3];
+
+        /**
+         * The id of the player claiming the set.
+         */
+        public int player;
+
+        /**
+         * The player's own check of the cards it put its tokens on: true iff they form a legal set.
+         */
+        public boolean legal;
+
+        /**
+         * The time (by the queue's clock, in nanoseconds) at which the claim was submitted.
+         */
+        public long enqueueNanos;
+
+        void copyFrom(Claim other) {
+            System.arraycopy(other.slots, 0, slots, 0, slots.length);
+            System.arraycopy(other.epochs, 0, epochs, 0, epochs.length);
+            player = other.player;
+            legal = other.legal;
+            enqueueNanos = other.enqueueNanos;
+        }
+    }
+
+    private final Claim[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /**
+     * The next position to be reserved by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The next position to be consumed (changed only by the consumer, read by size()).
+     */
+    private volatile long head;
+
+    /**
+     * The number of claims rejected because the queue was full.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * The consumer thread while it is waiting for a claim (null otherwise).
+     */
+    private volatile Thread waiter;
+
+    /**
+     * The clock the consumer waits by.
+     */
+    private final Clock clock;
+
+    /**
+     * @param capacity - the minimal number of claims the queue can hold (rounded up to a power of 2).
+     */
+    public ClaimQueue(int capacity) {
+        this(capacity, new RealClock());
+    }
+
+    /**
+     * @param capacity - the minimal number of claims the queue can hold (rounded up to a power of 2).
+     * @param clock    - the clock the consumer waits by.
+     */
+    public ClaimQueue(int capacity, Clock clock) {
+        this.clock = clock;
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        records = new Claim[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            records[i] = new Claim();
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Submits a claim (may be called by any thread).
+     * @param slots  - the three slots of the claimed set.
+     * @param epochs - the epochs of the slots when the tokens were placed.
+     * @param player - the id of the claiming player.
+     * @param legal  - the player's own verdict of the claim.
+     * @return       - true iff the claim was added, false if the queue is full.
+     */
+    public boolean offer(int[] slots, int[] epochs, int player, boolean legal) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (available < 0) {
+                rejected.incrementAndGet();
+                return false; // the consumer has not freed this record yet
+            } else {
+                position = tail.get(); // another producer took this position
+            }
+        }
+
+        int index = (int) position & mask;
+        Claim claim = records[index];
+        System.arraycopy(slots, 0, claim.slots, 0, claim.slots.length);
+        System.arraycopy(epochs, 0, claim.epochs, 0, claim.epochs.length);
+        claim.player = player;
+        claim.legal = legal;
+        claim.enqueueNanos = clock.nanos();
+        sequences.set(index, position + 1); // publish to the consumer
+        Thread consumer = waiter;
+        if (consumer != null) clock.unpark(consumer);
+        return true;
+    }
+
+    /**
+     * Blocks the consumer thread until a claim is offered, the clock reaches a deadline or the thread is
+     * unparked/interrupted. Returns immediately if the queue is not empty.
+     * @param deadline - the time (by the queue's clock) to stop waiting at.
+     */
+    public void awaitClaim(long deadline) {
+        waiter = Thread.currentThread();
+        if (isEmpty()) clock.parkUntil(deadline);
+        waiter = null;
+    }
+
+    /**
+     * Takes the oldest claim out of the queue (must only be called by the consumer thread).
+     * @param into - the record to copy the claim into.
+     * @return     - true iff a claim was taken, false if the queue is empty.
+     */
+    public boolean poll(Claim into) {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) return false;
+
+        into.copyFrom(records[index]);
+        sequences.set(index, position + records.length); // free the record for the producers
+        head = position + 1;
+        return true;
+    }
+
+    /**
+     * Takes all the claims currently in the queue, up to the size of the batch (consumer thread only).
+     * @param batch - the records to copy the claims into.
+     * @return      - the number of claims taken.
+     */
+    public int drain(Claim[] batch) {
+        int taken = 0;
+        while (taken < batch.length && poll(batch[taken]))
+            taken++;
+        return taken;
+    }
+
+    /**
+     * @return - the approximate number of claims in the queue.
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * @return - true iff the queue is (approximately) empty.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return - the number of claims rejected because the queue was full.
+     */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return - the number of claims the queue can hold.
+     */
+    public int capacity() {
+        return records.length;
+    }
+}
@@ -0,0 +1,215 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Chooses the key presses of a computer player, as selected by the ComputerStrategy configuration:
+ * Random  - presses random slots.
+ * Seeking - reacts to the table after a random reaction time, then claims one of the sets on it (or, with probability
+ *           1 - ComputerSkill, deliberately claims three cards that are not a set), removing its other tokens first.
+ * Each player has its own random generator, seeded from ComputerSeed and the player id.
+ * A strategy is used by one thread at a time (the player's AI thread, or its periodic task in Pool mode).
+ */
+abstract class ComputerStrategy {
+
+    protected final Env env;
+    protected final Table table;
+    protected final Player player;
+    protected final Random random;
+
+    ComputerStrategy(Env env, Table table, Player player) {
+        this.env = env;
+        this.table = table;
+        this.player = player;
+        random = new Random(env.config.computerSeed * 31 + player.id);
+    }
+
+    /**
+     * Creates the strategy selected in the configuration.
+     *
+     * @param env    - the game environment.
+     * @param table  - the table the player plays at.
+     * @param player - the computer player.
+     * @return       - the strategy.
+     */
+    static ComputerStrategy create(Env env, Table table, Player player) {
+        switch (env.config.computerStrategy.toLowerCase()) {
+            case "seeking":
+                return new Seeking(env, table, player);
+            default:
+                return new RandomSlots(env, table, player);
+        }
+    }
+
+    /**
+     * Called when the player may press a key.
+     *
+     * @return - the slot to press, or -1 if the player does not press a key now.
+     */
+    abstract int nextSlot();
+
+    /**
+     * @return - the time to wait before calling nextSlot again.
+     */
+    abstract long delayMillis();
+
+    /**
+     * Presses random slots, every ComputerDelaySeconds.
+     */
+    private static class RandomSlots extends ComputerStrategy {
+
+        RandomSlots(Env env, Table table, Player player) {
+            super(env, table, player);
+        }
+
+        @Override
+        int nextSlot() {
+            return random.nextInt(env.config.tableSize);
+        }
+
+        @Override
+        long delayMillis() {
+            return env.config.computerDelayMillis;
+        }
+    }
+
+    /**
+     * Looks for sets on the table. A claim is planned as a sequence of key presses (removing the tokens that are not
+     * part of it, then placing the missing ones), pressed every ComputerDelaySeconds.
+     */
+    private static class Seeking extends ComputerStrategy {
+
+        /**
+         * The presses of the current claim that were not made yet.
+         */
+        private final Deque<Integer> plan = new ArrayDeque<>();
+
+        /**
+         * The slots of the current claim, and the cards the player saw in them.
+         */
+        private final int[] targetSlots = new int[3], targetCards = new int[3];
+
+        /**
+         * The time at which the player will have reacted to the table (-1 if it is not looking at the table).
+         */
+        private long reactAt = -1;
+
+        Seeking(Env env, Table table, Player player) {
+            super(env, table, player);
+        }
+
+        @Override
+        int nextSlot() {
+            if (!plan.isEmpty() && targetChanged())
+                plan.clear(); // another player took some of the cards: look at the table again
+            if (plan.isEmpty()) {
+                if (!player.numberPressed.isEmpty() || player.claimPending)
+                    return -1; // let the previous claim's presses be handled, and the claim ruled on, first
+                long now = env.clock.millis();
+                if (reactAt < 0) {
+                    reactAt = now + reactionMillis();
+                    return -1;
+                }
+                if (now < reactAt) return -1;
+                reactAt = -1;
+                planClaim();
+                if (plan.isEmpty()) return -1;
+            }
+            return plan.poll();
+        }
+
+        @Override
+        long delayMillis() {
+            if (plan.isEmpty() && reactAt >= 0)
+                return Math.max(env.config.computerDelayMillis, reactAt - env.clock.millis());
+            return env.config.computerDelayMillis;
+        }
+
+        /**
+         * @return - a random reaction time, normally distributed by the configuration (but not negative).
+         */
+        private long reactionMillis() {
+            double millis = env.config.computerReactionMillis + random.nextGaussian() * env.config.computerReactionDeviationMillis;
+            return Math.max(0, Math.round(millis));
+        }
+
+        /**
+         * Chooses the slots to claim and plans the key presses of the claim.
+         */
+        private void planClaim() {
+            int[] target = random.nextDouble() < env.config.computerSkill ? realSet() : wrongSet();
+            if (target == null) return;
+            for (int i = 0; i < target.length; i++) {
+                targetSlots[i] = target[i];
+                targetCards[i] = table.cardAt(target[i]);
+            }
+
+            int[] tokens;
+            synchronized (player.tokenLock) {
+                tokens = Arrays.copyOf(player.currentTokens, player.tokenCount);
+            }
+            for (int slot : tokens)
+                if (!contains(target, slot)) plan.add(slot);
+            for (int slot : target)
+                if (!contains(tokens, slot)) plan.add(slot);
+        }
+
+        /**
+         * @return - true iff a card of the current claim was replaced since the claim was planned.
+         */
+        private boolean targetChanged() {
+            for (int i = 0; i < targetSlots.length; i++)
+                if (table.cardAt(targetSlots[i]) != targetCards[i]) return true;
+            return false;
+        }
+
+        /**
+         * @return - the slots of a random legal set on the table, or null if there is none.
+         */
+        private int[] realSet() {
+            List<int[]> sets = table.sets();
+            if (sets.isEmpty()) return null;
+            int[] cards = sets.get(random.nextInt(sets.size()));
+            int[] slots = new int[cards.length];
+            for (int i = 0; i < cards.length; i++) {
+                slots[i] = table.slotOf(cards[i]);
+                if (slots[i] == Table.EMPTY) return null; // the card was just taken
+            }
+            return slots;
+        }
+
+        /**
+         * @return - the slots of three random cards on the table that are not a legal set, or null if none were found.
+         */
+        private int[] wrongSet() {
+            List<Integer> slots = new ArrayList<>(env.config.tableSize);
+            for (int slot = 0; slot < env.config.tableSize; slot++)
+                if (table.cardAt(slot) != Table.EMPTY) slots.add(slot);
+            if (slots.size() < 3) return null;
+
+            for (int attempt = 0; attempt < 10; attempt++) {
+                int a = slots.get(random.nextInt(slots.size()));
+                int b = slots.get(random.nextInt(slots.size()));
+                int c = slots.get(random.nextInt(slots.size()));
+                if (a == b || b == c || a == c) continue;
+                int cardA = table.cardAt(a), cardB = table.cardAt(b), cardC = table.cardAt(c);
+                if (cardA == Table.EMPTY || cardB == Table.EMPTY || cardC == Table.EMPTY) continue;
+                if (!env.util.testSet(cardA, cardB, cardC)) return new int[]{a, b, c};
+            }
+            return null;
+        }
+
+        private static boolean contains(int[] slots, int slot) {
+            for (int s : slots)
+                if (s == slot) return true;
+            return false;
+        }
+    }
+}
@@ -6,8 +6,8 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.sql.ShardingKey;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
 /**
  * This class manages the dealer's threads and data
  */
@@ -23,15 +23,32 @@ public class Dealer implements Runnable {
      */
     private final Table table;
     private final Player[] players;
-    private int[] timesUpdated;
-    public boolean[] isFrozen;
-    public Thread[] playerThreads;
-    public boolean tableIsFull = false;
+
+    /**
+     * Runs the players (see ExecutionModel).
+     */
+    public final ExecutionModel execution;
+
+    /**
+     * True iff the execution model was created for this game (and is shut down at its end).
+     */
+    private final boolean ownsExecution;
+    public volatile boolean tableIsFull = false;
     /**
      * The list of card ids that are left in the dealer's deck.
      */
     private final List<Integer> deck;
 
+    /**
+     * The cards that are still in play (in the deck or on the table), i.e. were not taken as part of a set.
+     */
+    private final boolean[] inPlay;
+
+    /**
+     * The number of legal sets among the cards in play (-1 if it is not tracked, i.e. sets are not triples).
+     */
+    private int setsInPlay;
+
     /**
      * True iff game should be terminated due to an external event.
      */
@@ -40,18 +57,101 @@ public class Dealer implements Runnable {
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
      */
     private long reshuffleTime;
+
+    /**
+     * The time of the next update of the countdown display.
+     */
+    private long nextDisplayTime;
+
+    /**
+     * The number of milliseconds between two updates of the countdown display.
+     */
+    private static final long DISPLAY_TICK_MILLIS = 1000;
+
+    /**
+     * The thread running the dealer (woken up when the game is terminated).
+     */
+    private volatile Thread dealerThread;
+
+    /**
+     * The time until which each player is frozen (0 if it is not frozen).
+     * The dealer freezes a player when it rules on the player's claim (see removeCardsFromTable), and clears the
+     * deadline once it has passed; the freeze display is refreshed from the deadlines, so no thread waits out a freeze.
+     */
+    private final AtomicLongArray freezeDeadlines;
+
+    /**
+     * The time from a claim being submitted until the dealer decided whether it is a legal set (by the game clock).
+     */
+    public final LatencyHistogram claimLatency = new LatencyHistogram();
+
+    /**
+     * The number of claims rejected because a card was replaced after the player put a token on it.
+     */
+    private int staleClaims;
+
+    /**
+     * The number of claims of cards that are not a legal set.
+     */
+    private int wrongClaims;
+
+    /**
+     * The claims taken from the table's queue at once (reused on every wake up).
+     */
+    private final ClaimQueue.Claim[] batch;
+
+    /**
+     * The slots of the sets found in the current batch of claims.
+     */
+    private final boolean[] slotTaken;
+
+    /**
+     * The players penalized while checking the current batch of claims.
+     */
+    private final boolean[] penalized;
+
+    /**
+     * Shuffles the deck (seeded by DeckSeed, if it is set).
+     */
+    private final Random shuffler;
+
+    /**
+     * Orders claims by the time they were submitted (ties broken by player id, so the order is deterministic).
+     */
+    private static final Comparator<ClaimQueue.Claim> SUBMISSION_ORDER =
+            Comparator.<ClaimQueue.Claim>comparingLong(claim -> claim.enqueueNanos).thenComparingInt(claim -> claim.player);
     private Long currentTime;
 
     public Dealer(Env env, Table table, Player[] players) {
+        this(env, table, players, ExecutionModel.create(env), true);
+    }
+
+    /**
+     * Creates a dealer whose players run on an execution model shared with other games.
+     */
+    public Dealer(Env env, Table table, Player[] players, ExecutionModel execution) {
+        this(env, table, players, execution, false);
+    }
+
+    private Dealer(Env env, Table table, Player[] players, ExecutionModel execution, boolean ownsExecution) {
         this.env = env;
         this.table = table;
         this.players = players;
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        timesUpdated = new int[players.length];
-        isFrozen = new boolean[players.length];
-        reshuffleTime = System.currentTimeMillis()+env.config.turnTimeoutMillis;
-        currentTime = System.currentTimeMillis();
-        playerThreads = new Thread[players.length];
+        inPlay = new boolean[env.config.deckSize];
+        Arrays.fill(inPlay, true);
+        setsInPlay = countSetsInPlay();
+        freezeDeadlines = new AtomicLongArray(players.length);
+        reshuffleTime = env.clock.millis()+env.config.turnTimeoutMillis;
+        currentTime = env.clock.millis();
+        nextDisplayTime = currentTime + DISPLAY_TICK_MILLIS;
+        this.execution = execution;
+        this.ownsExecution = ownsExecution;
+        shuffler = env.config.deckSeed == 0 ? new Random() : new Random(env.config.deckSeed);
+        batch = new ClaimQueue.Claim[table.claims.capacity()];
+        Arrays.setAll(batch, i -> new ClaimQueue.Claim());
+        slotTaken = new boolean[env.config.tableSize];
+        penalized = new boolean[players.length];
     }
 
     /**
@@ -59,14 +159,18 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
+        dealerThread = Thread.currentThread();
+        env.clock.register();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-        for (int i=0; i<playerThreads.length; i++)
-        {
-            playerThreads[i] = new Thread(players[i]);
-            playerThreads[i].start();
-        }
+        // the AI threads are parties of the clock from the start, so the time does not move before they run
+        // (they deregister when they end; in Pool mode the clock is real, see Clock.create)
+        for (Player player : players)
+            if (!player.isHuman()) env.clock.register();
+        for (Player player : players)
+            execution.start(player);
+        env.clock.settle(); // the computer players find the table empty, on every run
         while (!shouldFinish()) {
-            Collections.shuffle(deck);
+            Collections.shuffle(deck, shuffler);
             placeCardsOnTable();
             timerLoop();
             removeAllCardsFromTable();
@@ -75,9 +179,15 @@ public class Dealer implements Runnable {
         for (int i=players.length-1; i>=0; i--)
         {
             players[i].terminate();
+            execution.stop(players[i]);
         }
+        if (ownsExecution) execution.shutdown();
+        env.clock.deregister();
         announceWinners();
-        
+        env.logger.log(Level.INFO, "Set cache: " + env.setCache.hits() + " hits, " + env.setCache.misses() + " misses.");
+        env.logger.log(Level.INFO, "Claim to verdict latency: " + claimLatency + ", stale claims: " + staleClaims +
+                ", wrong claims: " + wrongClaims);
+
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
@@ -85,10 +195,14 @@ public class Dealer implements Runnable {
      * The inner loop of the dealer thread that runs as long as the countdown did not time out.
      */
     private void timerLoop() {
-        while (!terminate && System.currentTimeMillis() <= reshuffleTime) {
-            currentTime = System.currentTimeMillis();
+        while (!shouldFinish() && env.clock.millis() <= reshuffleTime) {
             sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false,currentTime);
+            currentTime = env.clock.millis();
+            if (currentTime >= nextDisplayTime) {
+                updateTimerDisplay(false,currentTime);
+                nextDisplayTime = currentTime + DISPLAY_TICK_MILLIS;
+            }
+            updateFreezeDisplay(currentTime, false);
             removeCardsFromTable();
             placeCardsOnTable();
         }
@@ -99,6 +213,31 @@ public class Dealer implements Runnable {
      */
     public void terminate() {
         terminate = true;
+        Thread thread = dealerThread;
+        if (thread != null) env.clock.unpark(thread);
+    }
+
+    /**
+     * Freezes a player: its key presses are ignored until the freeze is over.
+     *
+     * @param player - the player id.
+     * @param millis - the freeze time in milliseconds.
+     */
+    public void freeze(int player, long millis) {
+        if (millis <= 0) return;
+        long now = env.clock.millis();
+        long deadline = freezeDeadlines.accumulateAndGet(player, now + millis, Math::max); // a freeze never shortens another
+        env.ui.setFreeze(player, deadline - now);
+        Thread thread = dealerThread;
+        if (thread != null) env.clock.unpark(thread); // to wake up when the freeze is over
+    }
+
+    /**
+     * @param player - the player id.
+     * @return       - true iff the player is frozen.
+     */
+    public boolean isFrozen(int player) {
+        return freezeDeadlines.get(player) > env.clock.millis();
     }
 
     /**
@@ -107,57 +246,126 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;                                  //Nadav - what about still set on board?
+        if (terminate) return true;
+        if (setsInPlay >= 0) return setsInPlay == 0;
+
+        List<Integer> cards = new ArrayList<>(deck);
+        cards.addAll(table.cards());
+        return !env.util.streamSets(cards).findAny().isPresent();
+    }
+
+    /**
+     * Counts the legal sets that include a card and two other cards in play.
+     *
+     * @param card - the card.
+     * @return     - the number of sets.
+     */
+    private int setsInPlayWith(int card) {
+        int pairs = 0;
+        for (int other = 0; other < inPlay.length; ++other)
+            if (other != card && inPlay[other] && inPlay[env.util.thirdCard(card, other)])
+                ++pairs;
+        return pairs / 2; // each set was counted once for each of its other two cards
+    }
+
+    /**
+     * Counts the legal sets among all the cards in play.
+     *
+     * @return - the number of sets, or -1 if sets are not triples and cannot be tracked.
+     */
+    private int countSetsInPlay() {
+        if (env.config.featureSize != 3) return -1;
+        int sets = 0;
+        for (int card = 0; card < inPlay.length; ++card)
+            if (inPlay[card]) sets += setsInPlayWith(card);
+        return sets / 3; // each set was counted once for each of its cards
+    }
+
+    /**
+     * Takes a card out of play (after it was part of a legal set) and updates the number of sets left.
+     *
+     * @param card - the card.
+     */
+    private void discard(int card) {
+        if (setsInPlay >= 0) setsInPlay -= setsInPlayWith(card);
+        inPlay[card] = false;
     }
 
     /**
      * Checks cards should be removed from the table and removes them.
+     * All the pending claims are checked together, in the order they were submitted: once a claim wins, any later
+     * claim on one of its slots is rejected without testing it (its cards are about to be replaced).
+     * A player whose claim wins is frozen for the point freeze, and one whose claim is wrong for the penalty freeze;
+     * claims that lost to an earlier one or were made on cards that were replaced since are rejected without a
+     * freeze. Once a player was penalized, its later claims in the batch are rejected without testing them. Each
+     * claim's player may place tokens again once its claim was ruled on.
      */
-    private void removeCardsFromTable() {
-        if(!table.possibleSetsQueue.isEmpty())
+    void removeCardsFromTable() {
+        int claimed = table.claims.drain(batch);
+        if (claimed == 0) return;
+        Arrays.sort(batch, 0, claimed, SUBMISSION_ORDER);
+
+        Arrays.fill(slotTaken, false);
+        Arrays.fill(penalized, false);
+        boolean anySet = false;
+        for (int c = 0; c < claimed; c++)
         {
-            int[] possibleSetAndPlayer = table.possibleSetsQueue.remove();
-            Player player = players[possibleSetAndPlayer[3]];
-            int[] possibleSetCards = {table.slotToCard[possibleSetAndPlayer[0]],table.slotToCard[possibleSetAndPlayer[1]],table.slotToCard[possibleSetAndPlayer[2]]};            
-            boolean isSet = env.util.testSet(possibleSetCards);
-            if(isSet)
-            {
-                player.point();
-                for (Player player2 : players){
-                    for(int i=0; i<player2.tokenCount; i++){
-                        if (player2.currentTokens[i] == possibleSetAndPlayer[0] | 
-                            player2.currentTokens[i] == possibleSetAndPlayer[1] |
-                            player2.currentTokens[i] == possibleSetAndPlayer[2]){
-                            table.removeToken(player2, i);
-                         }
+            ClaimQueue.Claim claim = batch[c];
+            int[] slots = claim.slots;
+            boolean isSet = false;
+            // a player penalized in this batch does not get a second chance from a claim it made meanwhile
+            if (!penalized[claim.player] && !slotTaken[slots[0]] && !slotTaken[slots[1]] && !slotTaken[slots[2]]) {
+                // the dealer is the only one changing cards, so matching epochs mean the player judged these very
+                // cards, and its own verdict can be trusted
+                if (table.epochAt(slots[0]) == claim.epochs[0] && table.epochAt(slots[1]) == claim.epochs[1] &&
+                        table.epochAt(slots[2]) == claim.epochs[2])
+                {
+                    isSet = claim.legal;
+                    if (!isSet) {
+                        wrongClaims++;
+                        penalized[claim.player] = true;
+                        players[claim.player].penalty();
                     }
                 }
-                for (int i=0; i<possibleSetAndPlayer.length-1;i++){
-                    try {
-                        Thread.sleep(env.config.tableDelayMillis);
-                    } catch (InterruptedException ignored) {}
-                    table.removeCard(possibleSetAndPlayer[i]);
-                    tableIsFull=false;
+                else
+                    staleClaims++;
+            }
+            claimLatency.record(env.clock.nanos() - claim.enqueueNanos);
+            if(isSet)
+            {
+                anySet = true;
+                players[claim.player].point();
+                freeze(claim.player, env.config.pointFreezeMillis);
+                for (int slot : slots) {
+                    slotTaken[slot] = true;
+                    for (Player player2 : players)
+                        table.removeToken(player2, slot);
                 }
-                updateTimerDisplay(true, currentTime);
             }
-            
+            players[claim.player].claimPending = false; // after the freeze, so no press slips in between
+        }
+
+        if (anySet)
+        {
+            for (int slot = 0; slot < slotTaken.length; slot++){
+                if (!slotTaken[slot]) continue;
+                discard(table.cardAt(slot));
+                table.removeCard(slot);
+                tableIsFull=false;
+            }
+            updateTimerDisplay(true, currentTime);
         }
-        
     }
 
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
-    private void placeCardsOnTable() {
-        for(int i =0;i<=11;i++)                 //for every empty slot we put a card there
+    void placeCardsOnTable() {
+        for(int i =0;i<env.config.tableSize;i++)                 //for every empty slot we put a card there
         {
-            if(!deck.isEmpty() && table.slotToCard[i]==null )
+            if(!deck.isEmpty() && table.cardAt(i)==Table.EMPTY )
             {
-                Integer card = deck.remove(0);      
-                try {
-                    Thread.sleep(env.config.tableDelayMillis);
-                } catch (InterruptedException ignored) {}
+                int card = deck.remove(0);
                 table.placeCard(card, i);
             }
         }
@@ -165,13 +373,19 @@ public class Dealer implements Runnable {
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Sleep until a claim is submitted, the countdown display needs an update, a freeze is over or the turn times out
+     * (whichever comes first), or until the thread is awakened for some other purpose. Then waits for the other
+     * parties of the clock to settle, so that all the claims of the current time are checked together.
      */
     private void sleepUntilWokenOrTimeout() {
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException ignored) {}
-        
+        long wakeTime = Math.min(nextDisplayTime, reshuffleTime + 1);
+        for (int i = 0; i < freezeDeadlines.length(); i++) {
+            long deadline = freezeDeadlines.get(i);
+            if (deadline != 0) wakeTime = Math.min(wakeTime, deadline);
+        }
+        if (wakeTime > env.clock.millis() && !terminate)
+            table.claims.awaitClaim(wakeTime);
+        env.clock.settle();
     }
 
     /**
@@ -180,24 +394,7 @@ public class Dealer implements Runnable {
     private void updateTimerDisplay(boolean reset, Long currentTime) {
         if(!reset)
         {
-            for(int i=0; i<players.length; i++){
-                if(isFrozen[i]&!players[i].isLegal){
-                    timesUpdated[i]++;
-                    env.ui.setFreeze(i,(env.config.penaltyFreezeMillis-timesUpdated[i]*1000));
-                    if(timesUpdated[i] >= env.config.penaltyFreezeMillis/1000){
-                        timesUpdated[i] = 0;
-                    }
-                }
-                else if(isFrozen[i]& players[i].isLegal)
-                {
-                    timesUpdated[i]++;
-                    env.ui.setFreeze(i,(env.config.pointFreezeMillis-timesUpdated[i]*1000));
-                    if(timesUpdated[i] >= env.config.pointFreezeMillis/1000){
-                        timesUpdated[i] = 0;
-                    }
-                }
-                
-            }
+            updateFreezeDisplay(currentTime, true);
             if((reshuffleTime-currentTime) <= env.config.turnTimeoutWarningMillis)
                 env.ui.setCountdown(Math.round((reshuffleTime-currentTime)/1000)*1000, true);
             else
@@ -208,28 +405,46 @@ public class Dealer implements Runnable {
         }
         else
         {
-            reshuffleTime = System.currentTimeMillis() + 60000;
+            reshuffleTime = env.clock.millis() + env.config.turnTimeoutMillis;
+            nextDisplayTime = env.clock.millis() + DISPLAY_TICK_MILLIS;
             env.ui.setCountdown(env.config.turnTimeoutMillis, false);
         }
     }
 
+    /**
+     * Ends the freezes whose deadline has passed, and optionally shows the time left of the others.
+     *
+     * @param now     - the current time.
+     * @param refresh - true to show the time left of the players that are still frozen.
+     */
+    private void updateFreezeDisplay(long now, boolean refresh) {
+        for (int i = 0; i < freezeDeadlines.length(); i++) {
+            long deadline = freezeDeadlines.get(i);
+            if (deadline == 0) continue;
+            if (deadline <= now) {
+                // a player may have frozen again since the deadline was read; only clear the old freeze
+                if (freezeDeadlines.compareAndSet(i, deadline, 0)) env.ui.setFreeze(i, 0);
+            } else if (refresh)
+                env.ui.setFreeze(i, deadline - now);
+        }
+    }
+
     /**
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
-        for(int i =0;i<=11;i++)//removing all the cards on the table
+        for(int i =0;i<env.config.tableSize;i++)//removing all the cards on the table
         {
-            deck.add(table.slotToCard[i]);
-            try {
-                Thread.sleep(env.config.tableDelayMillis);
-            } catch (InterruptedException ignored) {}
+            int card = table.cardAt(i);
+            if (card == Table.EMPTY) continue;
+            deck.add(card);
             tableIsFull = false;
             table.removeCard(i);
         }
         for (Player player : players){
-            player.tokenCount = 0;
+            table.removeTokens(player);
         }
-        Collections.shuffle(deck);//rearrange the cards so it will be different
+        Collections.shuffle(deck, shuffler);//rearrange the cards so it will be different
     }
 
     /**
@@ -0,0 +1,194 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Runs the players' work, as selected by the ExecutionMode configuration:
+ * Platform - a platform thread per player (and per computer player's AI), blocking on the key press queue.
+ * Virtual  - the same, on virtual threads (when the JDK has them, otherwise as Platform).
+ * Pool     - a shared bounded pool: a key press schedules a task that handles the player's queued presses, and the
+ *            AI of each computer player is a periodic task, so no thread is kept per player.
+ * The model is owned by the dealer, which starts the players with it and shuts it down at the end of the game, or
+ * shared by the games of a GameHost, which shuts it down when the host is shut down.
+ */
+public abstract class ExecutionModel {
+
+    /**
+     * Creates the execution model selected in the configuration.
+     *
+     * @param env - the game environment.
+     * @return    - the execution model.
+     */
+    public static ExecutionModel create(Env env) {
+        switch (env.config.executionMode.toLowerCase()) {
+            case "pool":
+                int threads = env.config.executionPoolThreads > 0 ? env.config.executionPoolThreads
+                        : Runtime.getRuntime().availableProcessors();
+                return new Pool(threads, env.config.computerDelayMillis);
+            case "virtual":
+                ThreadFactory factory = virtualThreadFactory();
+                if (factory != null) return new Threads(factory);
+                env.logger.log(Level.WARNING, "Virtual threads are not supported by this JDK, using platform threads.");
+                return new Threads(Thread::new);
+            default:
+                return new Threads(Thread::new);
+        }
+    }
+
+    /**
+     * Looks up the virtual thread factory (Thread.ofVirtual().factory()) by reflection, so the game still builds and
+     * runs on JDKs without virtual threads.
+     *
+     * @return - the factory, or null if the JDK has no virtual threads.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts running a player (and its AI, if it is a computer player).
+     *
+     * @param player - the player.
+     */
+    abstract void start(Player player);
+
+    /**
+     * Stops running a player's AI (called after the player was terminated).
+     *
+     * @param player - the player.
+     */
+    abstract void stop(Player player);
+
+    /**
+     * Called after a key press was added to the player's queue.
+     *
+     * @param player - the player.
+     */
+    abstract void pressed(Player player);
+
+    /**
+     * Stops running the players' work (called after the players were terminated).
+     */
+    public abstract void shutdown();
+
+    /**
+     * A thread per player, which blocks on the player's key press queue.
+     */
+    private static class Threads extends ExecutionModel {
+
+        private final ThreadFactory factory;
+
+        Threads(ThreadFactory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        void start(Player player) {
+            if (!player.isHuman()) player.createArtificialIntelligence(factory);
+            Thread thread = factory.newThread(player);
+            thread.setName("player-" + player.id);
+            thread.start();
+        }
+
+        @Override
+        void stop(Player player) {
+            // the AI thread ends when its player is terminated
+        }
+
+        @Override
+        void pressed(Player player) {
+            // the player's thread takes the press from the queue
+        }
+
+        @Override
+        public void shutdown() {
+            // the threads end when their players are terminated
+        }
+    }
+
+    /**
+     * A bounded pool shared by all the players, which runs each player as an actor: a task handling the player's
+     * queued presses is scheduled when the first press arrives, and at most one such task runs per player at a time.
+     */
+    private static class Pool extends ExecutionModel {
+
+        private final ScheduledExecutorService executor;
+
+        /**
+         * The time between two runs of a computer player's AI.
+         */
+        private final long aiPeriodNanos;
+
+        /**
+         * The periodic AI task of each computer player.
+         */
+        private final Map<Player, ScheduledFuture<?>> aiTasks = new ConcurrentHashMap<>();
+
+        Pool(int threads, long computerDelayMillis) {
+            aiPeriodNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(computerDelayMillis));
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newScheduledThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "players-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        void start(Player player) {
+            if (!player.isHuman())
+                aiTasks.put(player, executor.scheduleWithFixedDelay(() -> {
+                    if (player.pressComputerKey()) pressed(player);
+                }, aiPeriodNanos, aiPeriodNanos, TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        void stop(Player player) {
+            ScheduledFuture<?> aiTask = aiTasks.remove(player);
+            if (aiTask != null) aiTask.cancel(false);
+        }
+
+        @Override
+        void pressed(Player player) {
+            if (player.scheduled.compareAndSet(false, true)) submit(player);
+        }
+
+        private void submit(Player player) {
+            try {
+                executor.execute(() -> drain(player));
+            } catch (RejectedExecutionException ignored) {} // the game is over
+        }
+
+        /**
+         * Handles the player's queued presses, and schedules itself again if a press arrived after it finished.
+         */
+        private void drain(Player player) {
+            AtomicBoolean scheduled = player.scheduled;
+            player.drain();
+            scheduled.set(false);
+            if (!player.numberPressed.isEmpty() && scheduled.compareAndSet(false, true)) submit(player);
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+}
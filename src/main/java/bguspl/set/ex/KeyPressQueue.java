@@ -0,0 +1,177 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded lock-free multi-producer / single-consumer queue of the slots of a player's key presses.
+ * The producers are the threads the presses come from (the AWT event thread, which may press the keys of any player,
+ * and the AI of a computer player) and the consumer is the thread handling them (the player thread, or the Pool task
+ * draining the queue), which may move between threads as long as only one thread takes presses at a time.
+ * The slots are kept in a preallocated array, so a press never allocates or boxes. A producer reserves a position
+ * by advancing the tail, writes its slot and then publishes it through the position's sequence number (the same
+ * scheme as ClaimQueue), so two producers never write the same position and the consumer never reads a half written
+ * press.
+ * When the queue is full, offer drops the new press and counts it: the player already has a whole claim's worth of
+ * presses waiting, and overwriting the oldest one would change a claim that is on its way. Repeated presses of a
+ * slot are not coalesced either, since every press of a slot toggles the player's token on it.
+ * A waiting thread parks, and is unparked by the other side when it published a slot (or freed one).
+ */
+public class KeyPressQueue {
+
+    /**
+     * Returned by poll when the queue is empty.
+     */
+    public static final int EMPTY = -1;
+
+    private final int[] slots;
+
+    /**
+     * The sequence number of each position: equal to the position when it is free for the producer that reserves it,
+     * and to the position + 1 when its slot is ready for the consumer.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * The next position to be reserved by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The next position to be taken (changed only by the consumer).
+     */
+    private volatile long head;
+
+    /**
+     * The consumer while it waits for a press, and the producer while it waits for space in put (null otherwise).
+     */
+    private volatile Thread consumer, producer;
+
+    /**
+     * The number of presses dropped because the queue was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity - the number of presses the queue can hold.
+     */
+    public KeyPressQueue(int capacity) {
+        slots = new int[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * Adds a press, unless the queue is full (may be called by any thread).
+     * @param slot - the slot pressed.
+     * @return     - true iff the press was added, false if it was dropped.
+     */
+    public boolean offer(int slot) {
+        if (add(slot)) return true;
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Adds a press, waiting for space if the queue is full (by one thread at a time, the computer player's AI).
+     * @param slot - the slot pressed.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public void put(int slot) throws InterruptedException {
+        while (!add(slot)) {
+            producer = Thread.currentThread();
+            if (remainingCapacity() == 0) LockSupport.park(this);
+            producer = null;
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * @return - true iff the press was added, false if the queue is full.
+     */
+    private boolean add(int slot) {
+        long position = tail.get();
+        while (true) {
+            long available = sequences.get(index(position)) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (available < 0) {
+                return false; // the consumer has not taken this position yet
+            } else {
+                position = tail.get(); // another producer took this position
+            }
+        }
+
+        int index = index(position);
+        slots[index] = slot;
+        sequences.set(index, position + 1); // publish to the consumer
+        Thread waiting = consumer;
+        if (waiting != null) LockSupport.unpark(waiting);
+        return true;
+    }
+
+    /**
+     * Takes the oldest press (consumer only).
+     * @return - the slot pressed, or EMPTY if the queue is empty.
+     */
+    public int poll() {
+        long position = head;
+        int index = index(position);
+        if (sequences.get(index) != position + 1) return EMPTY;
+        int slot = slots[index];
+        sequences.set(index, position + slots.length); // free the position for the producers
+        head = position + 1;
+        Thread waiting = producer;
+        if (waiting != null) LockSupport.unpark(waiting);
+        return slot;
+    }
+
+    /**
+     * Takes the oldest press, waiting for one if the queue is empty (consumer only).
+     * @return - the slot pressed.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public int take() throws InterruptedException {
+        int slot;
+        while ((slot = poll()) == EMPTY) {
+            consumer = Thread.currentThread();
+            if (sequences.get(index(head)) != head + 1) LockSupport.park(this);
+            consumer = null;
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+        return slot;
+    }
+
+    private int index(long position) {
+        return (int) (position % slots.length);
+    }
+
+    /**
+     * @return - the approximate number of presses in the queue (including ones still being written).
+     */
+    public int size() {
+        long h = head; // read first, so the size is never negative
+        return (int) Math.min(slots.length, tail.get() - h);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return - the number of presses that can be added before the queue is full.
+     */
+    public int remainingCapacity() {
+        return slots.length - size();
+    }
+
+    /**
+     * @return - the number of presses dropped because the queue was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,103 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, with one bucket per power of 2.
+ * Percentiles are reported as the upper bound of their bucket (i.e. at most twice the actual value).
+ */
+public class LatencyHistogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency.
+     * @param nanos - the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(nanos) - (nanos == 0 ? 0 : 1));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long current;
+        while ((current = max.get()) < nanos && !max.compareAndSet(current, nanos)) ;
+    }
+
+    /**
+     * Adds all the latencies recorded by another histogram to this one.
+     * @param other - the other histogram (should not be recording at the same time).
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < Long.SIZE; i++)
+            buckets.addAndGet(i, other.buckets.get(i));
+        count.addAndGet(other.count.get());
+        total.addAndGet(other.total.get());
+        long otherMax = other.max.get(), current;
+        while ((current = max.get()) < otherMax && !max.compareAndSet(current, otherMax)) ;
+    }
+
+    /**
+     * @param earlier - a copy of this histogram taken earlier (see add).
+     * @return        - a histogram of the latencies recorded since the copy was taken. Its maximum is only bounded
+     *                  by its highest bucket, as the maximum at the time of the copy is not kept.
+     */
+    public LatencyHistogram since(LatencyHistogram earlier) {
+        LatencyHistogram since = new LatencyHistogram();
+        long highest = 0;
+        for (int i = 0; i < Long.SIZE; i++) {
+            long n = buckets.get(i) - earlier.buckets.get(i);
+            since.buckets.set(i, n);
+            if (n > 0) highest = (2L << i) - 1;
+        }
+        since.count.set(count.get() - earlier.count.get());
+        since.total.set(total.get() - earlier.total.get());
+        since.max.set(Math.min(highest, max.get()));
+        return since;
+    }
+
+    /**
+     * @return - the number of latencies recorded.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return - the mean latency in nanoseconds (0 if nothing was recorded).
+     */
+    public long mean() {
+        long n = count.get();
+        return n == 0 ? 0 : total.get() / n;
+    }
+
+    /**
+     * @return - the maximal latency in nanoseconds.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param fraction - the percentile as a fraction (e.g. 0.99).
+     * @return         - an upper bound of the latency below which the fraction of the recorded latencies are.
+     */
+    public long percentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * count.get());
+        long seen = 0;
+        for (int i = 0; i < Long.SIZE; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) return Math.min(max.get(), (2L << i) - 1);
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.3fms p50<=%.3fms p99<=%.3fms max=%.3fms", count(), mean() / 1e6,
+                percentile(0.5) / 1e6, percentile(0.99) / 1e6, max() / 1e6);
+    }
+}
@@ -1,8 +1,8 @@
 package bguspl.set.ex;
 
-import java.util.Queue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
-import java.util.LinkedList;
 
 import bguspl.set.Env;
 
@@ -44,6 +44,11 @@ public class Player implements Runnable {
      */
     private final boolean human;
 
+    /**
+     * Chooses the key presses of a computer player (null for a human player).
+     */
+    private final ComputerStrategy strategy;
+
     /**
      * True iff game should be terminated due to an external event.
      */
@@ -58,12 +63,35 @@ public class Player implements Runnable {
 
     public int tokenCount;
 
-    public boolean isFrozen = false;
+    /**
+     * The epoch of the slot of each token when it was placed (see Table.epochAt).
+     */
+    public int[] tokenEpochs;
 
-    public boolean isLegal = false;
+    /**
+     * Guards currentTokens and tokenCount, which are changed by both the player thread and the dealer thread.
+     */
+    final Object tokenLock = new Object();
 
-    
-    public Queue<Integer> numberPressed;
+    /**
+     * True from the moment the player submits a claim until the dealer ruled on it (set by Table.placeToken and
+     * cleared by the dealer). Meanwhile the player's key presses are ignored, so it cannot replace a token of a
+     * claim and submit another before it knows whether it is penalized.
+     */
+    volatile boolean claimPending;
+
+
+    /**
+     * The slots of the keys pressed and not handled yet (at most 3). The player thread blocks on it while it is empty.
+     * Any thread may add presses to it (the input thread and the AI may both press a computer player's keys), and
+     * only one thread at a time takes them.
+     */
+    public final KeyPressQueue numberPressed;
+
+    /**
+     * True iff a task handling the queued key presses is scheduled (used by the Pool execution model).
+     */
+    final AtomicBoolean scheduled = new AtomicBoolean();
     /**
      * The class constructor.
      *
@@ -79,9 +107,11 @@ public class Player implements Runnable {
         this.id = id;
         this.human = human;
         currentTokens = new int[3];
+        tokenEpochs = new int[3];
         tokenCount = 0;
         this.dealer = dealer;
-        numberPressed = new LinkedList<Integer>();
+        numberPressed = new KeyPressQueue(3);
+        strategy = human ? null : ComputerStrategy.create(env, table, this);
     }
 
     /**
@@ -91,65 +121,84 @@ public class Player implements Runnable {
     public void run() {
         playerThread = Thread.currentThread();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + "starting.");
-        if (!human) createArtificialIntelligence();
+        if (aiThread != null) aiThread.start();
 
-        while (!terminate) {                                    
-           while(!numberPressed.isEmpty() & dealer.tableIsFull)                                    //Nadav question 1
-            {
-                pressKey();
-            }
-            if(isFrozen)
-           {      
-                if(!isLegal){
-                try {
-                    env.ui.setFreeze(id, env.config.penaltyFreezeMillis);
-                    dealer.isFrozen[id] = true;
-                    Thread.sleep(env.config.penaltyFreezeMillis);
-                    dealer.isFrozen[id] = false;
-                    env.ui.setFreeze(id, 0);
-                } catch (InterruptedException ignored) {}
-                isFrozen = false;
-                }
-                else
-                {
-                    try{
-                    env.ui.setFreeze(id, env.config.pointFreezeMillis);
-                    dealer.isFrozen[id] = true;
-                    Thread.sleep(env.config.pointFreezeMillis);
-                    dealer.isFrozen[id] = false;
-                    env.ui.setFreeze(id, 0);}
-                    catch (InterruptedException ignored) {}
-                    isFrozen = false;
-                }
-           } 
-            
-            
+        while (!terminate) {
+            try {
+                handle(numberPressed.take());
+            } catch (InterruptedException ignored) {}
         }
-        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        if (aiThread != null) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        while (numberPressed.poll() != KeyPressQueue.EMPTY)
+            env.clock.deregister(); // the presses left unhandled
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * Creates an additional thread for an AI (computer) player, which is started by the player thread (called by
+     * execution models that run the AI on a thread of its own, before the player starts). The main loop of this
+     * thread repeatedly generates key presses, as chosen by the player's strategy. If the queue of key presses is
+     * full, the thread waits until it is not full.
+     * The thread is a party of the game clock (registered by the dealer before the player started, and deregistered
+     * by the thread when it ends): it waits between presses by the game time.
+     *
+     * @param factory - creates the thread.
      */
-    private void createArtificialIntelligence() {
+    void createArtificialIntelligence(ThreadFactory factory) {
         // note: this is a very very smart AI (!)
-        aiThread = new Thread(() -> {
+        aiThread = factory.newThread(() -> {
             env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-            int max = 11;
             while (!terminate) {
-                int randomNubmer = (int)(Math.random()*(max+1));
-                if(numberPressed.size()<3 & dealer.tableIsFull){
-                    numberPressed.add(randomNubmer);
-                }
                 try {
-                    synchronized (this) { Thread.sleep(100); }
+                    int slot = dealer.tableIsFull & !dealer.isFrozen(id) ? strategy.nextSlot() : -1;
+                    if (slot >= 0) {
+                        env.clock.register(); // the press is a party of the clock until it was handled
+                        try {
+                            numberPressed.put(slot);
+                        } catch (InterruptedException e) {
+                            env.clock.deregister();
+                            throw e;
+                        }
+                    }
+                    long delay = strategy.delayMillis();
+                    if (delay > 0)
+                        env.clock.sleep(delay);
+                    else if (slot < 0)
+                        env.clock.sleep(1); // nothing to do until the freeze is over or the table is full
                 } catch (InterruptedException ignored) {}
             }
+            env.clock.deregister();
             env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
+        });
+        aiThread.setName("computer-" + id);
+    }
+
+    /**
+     * Generates one key press of the AI without waiting (used when the AI is a periodic task, not a thread).
+     *
+     * @return - true iff a key press was added to the queue.
+     */
+    boolean pressComputerKey() {
+        if (terminate | !dealer.tableIsFull || dealer.isFrozen(id) || numberPressed.remainingCapacity() == 0)
+            return false;
+        int slot = strategy.nextSlot();
+        return slot >= 0 && offerPress(slot);
+    }
+
+    /**
+     * Handles all the queued key presses without waiting for more (used when the player is not run by a thread).
+     */
+    void drain() {
+        int slot;
+        while (!terminate && (slot = numberPressed.poll()) != KeyPressQueue.EMPTY)
+            handle(slot);
+    }
+
+    /**
+     * @return - true iff the player is human (not a computer player).
+     */
+    boolean isHuman() {
+        return human;
     }
 
     /**
@@ -157,40 +206,69 @@ public class Player implements Runnable {
      */
     public void terminate() {
         terminate = true;
+        if (playerThread != null) playerThread.interrupt();
+        if (aiThread != null) aiThread.interrupt();
     }
 
     /**
      * This method is called when a key is pressed./
+     * Key presses of a frozen player are ignored.
      *
      * @param slot - the slot corresponding to the key pressed.
+     * @return     - true iff the press was queued (false if it was ignored).
      */
-    public void keyPressed(int slot) {
-        if(numberPressed.size()<3 & dealer.tableIsFull == true){
-            numberPressed.add(slot);
+    public boolean keyPressed(int slot) {
+        if(dealer.tableIsFull == true & !dealer.isFrozen(id) && offerPress(slot)){ // ignored if 3 presses are already waiting
+            dealer.execution.pressed(this);
+            return true;
         }
-        
+        return false;
     }
 
-    public void pressKey()
+    /**
+     * Queues a key press without waiting. The press is a party of the game clock until it was handled, so the game
+     * time does not move while it is on its way.
+     *
+     * @param slot - the slot pressed.
+     * @return     - true iff the press was queued.
+     */
+    private boolean offerPress(int slot) {
+        env.clock.register();
+        if (numberPressed.offer(slot)) return true;
+        env.clock.deregister();
+        return false;
+    }
+
+    /**
+     * Handles a key press taken from the queue, and removes it from the parties of the game clock.
+     *
+     * @param slot - the slot pressed.
+     */
+    private void handle(int slot) {
+        try {
+            pressKey(slot);
+        } finally {
+            env.clock.deregister();
+        }
+    }
+
+    /**
+     * Handles a key press taken from the queue: removes the player's token from the slot, or places one there.
+     * Presses made before the player was frozen or the table started changing are ignored. A third token submits a
+     * claim, and the presses are ignored until the dealer rules on it (and freezes the player).
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     */
+    public void pressKey(int slot)
     {
-        while(!numberPressed.isEmpty() & dealer.tableIsFull == true){
-            int slot = numberPressed.remove();
-            boolean tokenIsThere = false;
-            int i =0;
-            while (i<tokenCount & !tokenIsThere){
-            if(currentTokens[i]==slot){
-                tokenIsThere = true;
-                table.removeToken(this, slot);
-            }
-            i++;
-            }
-            if(!tokenIsThere & tokenCount<3){
-                if(tokenCount==2)
-                {
-                    isFrozen = true;
-                    isLegal = isSet(slot);
+        if (dealer.tableIsFull & !dealer.isFrozen(id) & !claimPending) {
+            synchronized (tokenLock) {
+                boolean tokenIsThere = table.removeToken(this, slot);
+                if(!tokenIsThere & tokenCount<3){
+                    boolean claim = tokenCount == 2;
+                    int epoch = table.epochAt(slot);
+                    table.placeToken(this, slot, epoch, claim && isSet(slot, epoch));
                 }
-                table.placeToken(this, slot);
             }
         }
     }
@@ -207,28 +285,33 @@ public class Player implements Runnable {
         env.ui.setScore(id, score);
     }
 
-    public Boolean isSet(int slot)
+    /**
+     * Checks whether the cards under the player's two tokens and a third slot form a legal set. The cards are the
+     * ones the player saw, i.e. at the epochs the tokens were placed; if any of them was replaced since, the
+     * claim is stale and is not a set.
+     *
+     * @param slot  - the slot of the third card.
+     * @param epoch - the epoch of that slot.
+     * @return      - true iff the cards form a legal set.
+     */
+    public Boolean isSet(int slot, int epoch)
     {
-        int var1 = table.slotToCard[currentTokens[0]];
-        int var2 = table.slotToCard[currentTokens[1]];
-        int var3 = table.slotToCard[slot];
-        int[] vars = {var1,var2,var3};
-        return env.util.testSet(vars);
+        int var1 = table.cardAt(currentTokens[0], tokenEpochs[0]);
+        int var2 = table.cardAt(currentTokens[1], tokenEpochs[1]);
+        int var3 = table.cardAt(slot, epoch);
+        if (var1 == Table.EMPTY || var2 == Table.EMPTY || var3 == Table.EMPTY) return false;
+        return env.util.testSet(var1, var2, var3);
     }
 
     public void resetTokens()
     {
-        tokenCount = 0;
-        env.ui.removeToken(id,currentTokens[0]);
-        env.ui.removeToken(id,currentTokens[1]);
-        env.ui.removeToken(id,currentTokens[2]);
+        table.removeTokens(this);
     }
     /**
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-       
-
+        dealer.freeze(id, env.config.penaltyFreezeMillis);
     }
 
     public int getScore() {
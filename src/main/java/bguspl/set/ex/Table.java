@@ -2,11 +2,10 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.Queue;
-import java.util.LinkedList;
 import java.util.stream.Collectors;
 
 /**
@@ -22,29 +21,69 @@ public class Table {
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Marks an empty slot in slotToCard, and a card that is not on the table in cardToSlot.
      */
-    protected final Integer[] slotToCard; // card per slot (if any)
+    public static final int EMPTY = -1;
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * Mapping between a slot and the card placed in it (EMPTY if none).
      */
-    protected final Integer[] cardToSlot; // slot per card (if any)
-    public Queue<int[]> possibleSetsQueue;
-    
+    protected final int[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (EMPTY if none).
+     */
+    protected final int[] cardToSlot; // slot per card (if any)
+
+    /**
+     * The claims of players waiting to be checked by the dealer.
+     */
+    public final ClaimQueue claims;
+
+    /**
+     * One lock per slot, guarding the card mappings and the epoch of that slot.
+     */
+    private final Object[] slotLocks;
+
+    /**
+     * The epoch of each slot: incremented whenever a card is placed in or removed from the slot, so the same
+     * (slot, epoch) pair always refers to the same card.
+     */
+    private final int[] slotEpochs;
+
+    /**
+     * Guards the set index and the table hash, which change with every card placed or removed.
+     */
+    private final Object indexLock = new Object();
+
+    /**
+     * The legal sets among the cards currently on the table (each one sorted by card id).
+     * This is an immutable snapshot that is replaced whenever a card is placed or removed, so it can be read by any
+     * thread without recomputing it.
+     */
+    private volatile List<int[]> sets = Collections.emptyList();
+
+    /**
+     * The Zobrist hash of the cards currently on the table (see SetCache).
+     */
+    private long hash;
+
     /**
      * Constructor for testing.
      *
      * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
+     * @param slotToCard - mapping between a slot and the card placed in it (EMPTY if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (EMPTY if none).
      */
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+    public Table(Env env, int[] slotToCard, int[] cardToSlot) {
 
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        possibleSetsQueue = new LinkedList<int[]>();
+        claims = new ClaimQueue(env.config.claimQueueCapacity, env.clock);
+        slotLocks = new Object[slotToCard.length];
+        Arrays.setAll(slotLocks, i -> new Object());
+        slotEpochs = new int[slotToCard.length];
     }
 
     /**
@@ -54,15 +93,70 @@ public class Table {
      */
     public Table(Env env) {
 
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, emptyMapping(env.config.tableSize), emptyMapping(env.config.deckSize));
+    }
+
+    private static int[] emptyMapping(int size) {
+        int[] mapping = new int[size];
+        Arrays.fill(mapping, EMPTY);
+        return mapping;
+    }
+
+    /**
+     * @param slot - a grid slot.
+     * @return     - the card placed in the slot, or EMPTY if there is none.
+     */
+    public int cardAt(int slot) {
+        synchronized (slotLocks[slot]) {
+            return slotToCard[slot];
+        }
+    }
+
+    /**
+     * @param slot - a grid slot.
+     * @return     - the current epoch of the slot.
+     */
+    public int epochAt(int slot) {
+        synchronized (slotLocks[slot]) {
+            return slotEpochs[slot];
+        }
+    }
+
+    /**
+     * @param slot  - a grid slot.
+     * @param epoch - an epoch of the slot.
+     * @return      - the card placed in the slot if the slot is still at the given epoch, EMPTY otherwise.
+     */
+    public int cardAt(int slot, int epoch) {
+        synchronized (slotLocks[slot]) {
+            return slotEpochs[slot] == epoch ? slotToCard[slot] : EMPTY;
+        }
+    }
+
+    /**
+     * @param card - a card id.
+     * @return     - the slot the card is placed in, or EMPTY if it is not on the table.
+     */
+    public int slotOf(int card) {
+        return cardToSlot[card];
+    }
+
+    /**
+     * @return - the cards currently on the table, in slot order.
+     */
+    public List<Integer> cards() {
+        List<Integer> cards = new ArrayList<>(slotToCard.length);
+        for (int card : slotToCard)
+            if (card != EMPTY)
+                cards.add(card);
+        return cards;
     }
 
     /**
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        sets().forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
             List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
@@ -70,6 +164,82 @@ public class Table {
         });
     }
 
+    /**
+     * Returns the legal sets among the cards currently on the table, kept up to date as cards are placed and removed.
+     *
+     * @return - an unmodifiable list of sets, each one contains the card ids of a legal set (sorted).
+     */
+    public List<int[]> sets() {
+        return sets;
+    }
+
+    /**
+     * @return - true iff there is at least one legal set among the cards currently on the table.
+     */
+    public boolean hasSets() {
+        return !sets.isEmpty();
+    }
+
+    /**
+     * @return - the Zobrist hash of the cards currently on the table.
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Updates the table hash and the set index after a card was placed or removed, reusing the cached sets of the
+     * new table state if it was seen before.
+     * @param card   - the card that was placed or removed.
+     * @param placed - true iff the card was placed.
+     */
+    private void updateSets(int card, boolean placed) {
+        hash ^= env.setCache.key(card);
+        List<int[]> cached = env.setCache.get(hash);
+        if (cached != null) {
+            sets = cached;
+            return;
+        }
+        if (placed) addSetsOf(card);
+        else removeSetsOf(card);
+        env.setCache.put(hash, sets);
+    }
+
+    /**
+     * Adds the sets formed by a newly placed card and the other cards on the table to the set index.
+     * @param card - the card that was placed.
+     */
+    private void addSetsOf(int card) {
+        List<int[]> added = new ArrayList<>(sets);
+        if (env.config.featureSize == 3) {
+            for (int i = 0; i < slotToCard.length; ++i)
+                for (int j = i + 1; j < slotToCard.length; ++j) {
+                    int a = slotToCard[i], b = slotToCard[j];
+                    if (a != EMPTY && b != EMPTY && a != card && b != card && env.util.testSet(a, b, card)) {
+                        int[] set = {a, b, card};
+                        Arrays.sort(set);
+                        added.add(set);
+                    }
+                }
+        } else {
+            // sets have more than three cards, let the util find the ones that include the new card
+            env.util.streamSets(cards()).filter(set -> Arrays.stream(set).anyMatch(c -> c == card)).forEach(added::add);
+        }
+        sets = Collections.unmodifiableList(added);
+    }
+
+    /**
+     * Removes the sets that include a removed card from the set index.
+     * @param card - the card that was removed.
+     */
+    private void removeSetsOf(int card) {
+        List<int[]> kept = new ArrayList<>(sets.size());
+        for (int[] set : sets)
+            if (Arrays.stream(set).noneMatch(c -> c == card))
+                kept.add(set);
+        sets = Collections.unmodifiableList(kept);
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
@@ -77,8 +247,8 @@ public class Table {
      */
     public int countCards() {
         int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
+        for (int card : slotToCard)
+            if (card != EMPTY)
                 ++cards;
         return cards;
     }
@@ -91,12 +261,14 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
+        synchronized (slotLocks[slot]) {
+            cardToSlot[card] = slot;
+            slotToCard[slot] = card;
+            slotEpochs[slot]++;
+        }
+        synchronized (indexLock) {
+            updateSets(card, true);
+        }
         env.ui.placeCard(card, slot);
     }
 
@@ -105,34 +277,48 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-        int card = slotToCard[slot];
-        cardToSlot[card] = null;
-        slotToCard[slot] = null;
+        int card;
+        synchronized (slotLocks[slot]) {
+            card = slotToCard[slot];
+            if (card == EMPTY) return;
+            cardToSlot[card] = EMPTY;
+            slotToCard[slot] = EMPTY;
+            slotEpochs[slot]++;
+        }
+        synchronized (indexLock) {
+            updateSets(card, false);
+        }
         env.ui.removeTokens(slot);
         env.ui.removeCard(slot);
-        
     }
 
     /**
-     * Places a player token on a grid slot.
+     * Places a player token on a grid slot. If this is the player's third token, the three slots (and the epochs
+     * at which the tokens were placed) are submitted to the dealer as a possible set. If the claim queue is full,
+     * the third token is not placed (and the player may press the key again); otherwise the player's claim is pending
+     * until the dealer rules on it.
+     * Token operations only lock the player's own tokens, so different players never wait for each other.
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
+     * @param epoch  - the epoch of the slot the player saw when placing the token.
+     * @param legal  - for the third token, the player's own check of whether its tokens form a legal set.
+     * @return       - true iff the token was placed.
      */
-    public void placeToken(Player player, int slot) {               //SYNCRONISED
-        player.currentTokens[player.tokenCount] = slot;
-        player.tokenCount++;
-        env.ui.placeToken(player.id, slot);
-        if(player.tokenCount == 3)
-        {
-            int[] possibleSetWithPlayer = new int[4];
-            possibleSetWithPlayer[0] = player.currentTokens[0];
-            possibleSetWithPlayer[1] = player.currentTokens[1];
-            possibleSetWithPlayer[2] = player.currentTokens[2];
-            possibleSetWithPlayer[3] = player.id;
-            possibleSetsQueue.add(possibleSetWithPlayer);
+    public boolean placeToken(Player player, int slot, int epoch, boolean legal) {
+        synchronized (player.tokenLock) {
+            if (player.tokenCount == player.currentTokens.length) return false;
+            player.currentTokens[player.tokenCount] = slot;
+            player.tokenEpochs[player.tokenCount] = epoch;
+            if (player.tokenCount == 2) {
+                player.claimPending = true; // before the claim is queued, as the dealer may rule on it at once
+                if (!claims.offer(player.currentTokens, player.tokenEpochs, player.id, legal)) {
+                    player.claimPending = false;
+                    return false;
+                }
+            }
+            player.tokenCount++;
+            env.ui.placeToken(player.id, slot);
+            return true;
         }
     }
 
@@ -142,21 +328,32 @@ public class Table {
      * @param slot   - the slot from which to remove the token.
      * @return       - true iff a token was successfully removed.
      */
-    public boolean removeToken(Player player, int slot) {               //SYNCRONISED
-        if (player.tokenCount == 0){
-        return false;
-    }
-        int j=0;
-        for (int i=0; i<player.tokenCount; i++){
-            if(player.currentTokens[i]==slot){
-                j = i;
+    public boolean removeToken(Player player, int slot) {
+        synchronized (player.tokenLock) {
+            int j = 0;
+            while (j < player.tokenCount && player.currentTokens[j] != slot)
+                j++;
+            if (j == player.tokenCount) return false;
+
+            for (int i = j + 1; i < player.tokenCount; i++) {
+                player.currentTokens[i - 1] = player.currentTokens[i];
+                player.tokenEpochs[i - 1] = player.tokenEpochs[i];
             }
+            player.tokenCount--;
+            env.ui.removeToken(player.id, slot);
+            return true;
         }
-        for (int i=j+1; i<player.tokenCount; i++){
-            player.currentTokens[i-1] = player.currentTokens[i];
+    }
+
+    /**
+     * Removes all the tokens of a player.
+     * @param player - the player the tokens belong to.
+     */
+    public void removeTokens(Player player) {
+        synchronized (player.tokenLock) {
+            for (int i = 0; i < player.tokenCount; i++)
+                env.ui.removeToken(player.id, player.currentTokens[i]);
+            player.tokenCount = 0;
         }
-        player.tokenCount--;
-        env.ui.removeToken(player.id, slot);
-        return true;
     }
 }
@@ -0,0 +1,98 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnimatedUserInterfaceTest {
+
+    /**
+     * Records the calls drawn, and counts down when the winner is announced.
+     */
+    private static class RecordingUserInterface implements UserInterface {
+
+        final List<String> calls = new ArrayList<>();
+        final CountDownLatch announced = new CountDownLatch(1);
+
+        private synchronized void record(String call) {
+            calls.add(call);
+        }
+
+        synchronized List<String> calls() {
+            return new ArrayList<>(calls);
+        }
+
+        @Override
+        public void placeCard(int card, int slot) { record("placeCard " + card + " " + slot); }
+        @Override
+        public void removeCard(int slot) { record("removeCard " + slot); }
+        @Override
+        public void setCountdown(long millies, boolean warn) { record("setCountdown " + millies); }
+        @Override
+        public void setElapsed(long millies) { record("setElapsed " + millies); }
+        @Override
+        public void setScore(int player, int score) { record("setScore " + player + " " + score); }
+        @Override
+        public void setFreeze(int player, long millies) { record("setFreeze " + player + " " + millies); }
+        @Override
+        public void placeToken(int player, int slot) { record("placeToken " + player + " " + slot); }
+        @Override
+        public void removeTokens() { record("removeTokens"); }
+        @Override
+        public void removeTokens(int slot) { record("removeTokens " + slot); }
+        @Override
+        public void removeToken(int player, int slot) { record("removeToken " + player + " " + slot); }
+        @Override
+        public void announceWinner(int[] players) {
+            record("announceWinner " + Arrays.toString(players));
+            announced.countDown();
+        }
+    }
+
+    @Test
+    void slotCalls_DrawnInOrderAndOthersPassedThrough() throws InterruptedException {
+        RecordingUserInterface ui = new RecordingUserInterface();
+        AnimatedUserInterface animated = new AnimatedUserInterface(ui, 100, 1000);
+        animated.placeCard(7, 0);
+        animated.placeToken(1, 0);
+        animated.setScore(1, 2); // passed through while the card is still waiting to be drawn
+        animated.removeToken(1, 0);
+        animated.removeTokens(0);
+        animated.removeCard(0);
+        animated.setFreeze(1, 1000);
+        animated.removeTokens();
+        animated.announceWinner(new int[]{1});
+        assertEquals(Arrays.asList("setScore 1 2", "setFreeze 1 1000"), ui.calls());
+
+        assertTrue(ui.announced.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("setScore 1 2", "setFreeze 1 1000", "placeCard 7 0", "placeToken 1 0",
+                "removeToken 1 0", "removeTokens 0", "removeCard 0", "removeTokens", "announceWinner [1]"),
+                ui.calls());
+    }
+
+    @Test
+    void cardMoves_LagBounded() throws InterruptedException {
+        int moves = 40;
+        RecordingUserInterface ui = new RecordingUserInterface();
+        AnimatedUserInterface animated = new AnimatedUserInterface(ui, 200, 400);
+        long start = System.nanoTime();
+        for (int i = 0; i < moves; i++)
+            animated.placeCard(i, i % 12);
+        animated.announceWinner(new int[]{0});
+
+        // without the bound, the moves would take 8 seconds to draw
+        assertTrue(ui.announced.await(4, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400)); // the first moves still waited
+        List<String> calls = ui.calls();
+        assertEquals(moves + 1, calls.size());
+        for (int i = 0; i < moves; i++)
+            assertEquals("placeCard " + i + " " + i % 12, calls.get(i));
+    }
+}
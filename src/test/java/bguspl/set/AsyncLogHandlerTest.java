@@ -0,0 +1,102 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogHandlerTest {
+
+    private static final Formatter MESSAGE = new Formatter() {
+        @Override
+        public String format(LogRecord record) {
+            return record.getLevel() + " " + record.getMessage() + "\n";
+        }
+    };
+
+    private static Logger logger(AsyncLogHandler handler) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        return logger;
+    }
+
+    @Test
+    void close_WritesAllRecordsInOrder() throws InterruptedException {
+        int threads = 4, recordsEach = 2000;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogHandler handler = new AsyncLogHandler(out, MESSAGE, threads * recordsEach);
+        Logger logger = logger(handler);
+        Thread[] loggers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            loggers[t] = new Thread(() -> {
+                for (int i = 0; i < recordsEach; i++)
+                    logger.log(Level.INFO, thread + ":" + i);
+            });
+            loggers[t].start();
+        }
+        for (Thread thread : loggers) thread.join();
+        handler.close();
+
+        // the records of each thread are written in the order they were logged, and none is lost
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(threads * recordsEach, lines.length);
+        int[] next = new int[threads];
+        for (String line : lines) {
+            String[] record = line.substring("INFO ".length()).split(":");
+            assertEquals(next[Integer.parseInt(record[0])]++, Integer.parseInt(record[1]));
+        }
+        assertEquals(0, handler.dropped());
+    }
+
+    @Test
+    void publish_DroppedWhenFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1), release = new CountDownLatch(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogHandler handler = new AsyncLogHandler(out, new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                writing.countDown();
+                try {
+                    release.await(); // hold the writer, so the ring fills up
+                } catch (InterruptedException ignored) {}
+                return MESSAGE.format(record);
+            }
+        }, 4);
+        Logger logger = logger(handler);
+        logger.log(Level.INFO, "record 0");
+        writing.await(); // the writer holds record 0, before any record is dropped
+        for (int i = 1; i < 20; i++)
+            logger.log(Level.INFO, "record " + i);
+        assertEquals(15, handler.dropped()); // 4 records fill the ring
+
+        release.countDown();
+        handler.close();
+        String written = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(written.contains("WARNING " + handler.dropped() + " log records were dropped."));
+        assertTrue(written.contains("INFO record 0"));
+    }
+
+    @Test
+    void publish_DroppedAfterClose() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogHandler handler = new AsyncLogHandler(out, MESSAGE, 4);
+        Logger logger = logger(handler);
+        logger.log(Level.INFO, "before");
+        handler.close();
+        logger.log(Level.INFO, "after");
+        handler.close();
+
+        assertEquals("INFO before\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals(1, handler.dropped());
+    }
+}
@@ -0,0 +1,128 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHostTest {
+
+    private static GameHost host(String executionMode) {
+        return host(executionMode, new Properties());
+    }
+
+    private static GameHost host(String executionMode, Properties properties) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+        properties.setProperty("FeatureCount", "2"); // a deck of 9 cards, all on the table at once
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.putIfAbsent("ComputerDelaySeconds", "0");
+        properties.putIfAbsent("PointFreezeSeconds", "0");
+        properties.putIfAbsent("PenaltyFreezeSeconds", "0");
+        properties.setProperty("ExecutionMode", executionMode);
+        properties.setProperty("MaxConcurrentGames", "2");
+        Config config = new Config(logger, properties);
+        return new GameHost(logger, config, new UtilImpl(config));
+    }
+
+    private static void playGames(GameHost host, int count) throws Exception {
+        List<Future<GameHost.Result>> games = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            games.add(host.submit());
+            assertTrue(host.runningGames() <= 2);
+        }
+        for (Future<GameHost.Result> game : games) {
+            GameHost.Result result = game.get(30, TimeUnit.SECONDS);
+            assertNotNull(result.winners);
+            assertTrue(result.claims > 0);
+        }
+        host.shutdown();
+        assertEquals(count, host.gamesFinished());
+        assertEquals(host.claims(), host.claimLatency().count());
+    }
+
+    @Test
+    void playsGames_PlatformThreads() throws Exception {
+        playGames(host("Platform"), 4);
+    }
+
+    @Test
+    void playsGames_SharedPool() throws Exception {
+        playGames(host("Pool"), 4);
+    }
+
+    @Test
+    void playsGames_VirtualClock() throws Exception {
+        // real time freezes and delays that would make 4 games take minutes on the wall clock
+        Properties properties = new Properties();
+        properties.setProperty("ClockMode", "Virtual");
+        properties.setProperty("ComputerDelaySeconds", "0.5");
+        properties.setProperty("PointFreezeSeconds", "1");
+        properties.setProperty("PenaltyFreezeSeconds", "3");
+        long start = System.nanoTime();
+        playGames(host("Platform", properties), 4);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @Test
+    void playsGames_SharedPoolOnTheRealClock() throws Exception {
+        // the Pool computer players run on the real time, so a virtual clock would race through the turns
+        Properties properties = new Properties();
+        properties.setProperty("ClockMode", "Virtual");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        assertTrue(Clock.create(config) instanceof VirtualClock);
+        properties.setProperty("ExecutionMode", "Pool");
+        assertTrue(Clock.create(new Config(Logger.getAnonymousLogger(), properties)) instanceof RealClock);
+        playGames(host("Pool", properties), 4);
+    }
+
+    @Test
+    void playsGames_SeekingComputers() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("ClockMode", "Virtual");
+        properties.setProperty("ComputerStrategy", "Seeking");
+        properties.setProperty("ComputerSkill", "0.5");
+        properties.setProperty("PenaltyFreezeSeconds", "3");
+        playGames(host("Platform", properties), 4);
+    }
+
+    @Test
+    void playsGames_SameOnEveryRunOnTheVirtualClock() throws Exception {
+        // the games of both hosts deal the same cards and their computer players make the same choices
+        Properties properties = new Properties();
+        properties.setProperty("ClockMode", "Virtual");
+        properties.setProperty("DeckSeed", "7");
+        properties.setProperty("ComputerDelaySeconds", "0.1");
+        properties.setProperty("PointFreezeSeconds", "1");
+        properties.setProperty("PenaltyFreezeSeconds", "3");
+        List<GameHost.Result> results = new ArrayList<>();
+        for (int run = 0; run < 2; run++) {
+            GameHost host = host("Platform", properties);
+            List<Future<GameHost.Result>> games = new ArrayList<>();
+            for (int i = 0; i < 2; i++)
+                games.add(host.submit());
+            for (Future<GameHost.Result> game : games)
+                results.add(game.get(30, TimeUnit.SECONDS));
+            host.shutdown();
+        }
+
+        GameHost.Result first = results.get(0);
+        assertTrue(first.claims > 0);
+        for (GameHost.Result result : results) {
+            assertArrayEquals(first.scores, result.scores);
+            assertArrayEquals(first.winners, result.winners);
+            assertEquals(first.claims, result.claims);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadGeneratorTest {
+
+    private static LoadGenerator generator(Properties properties) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+        properties.setProperty("HumanPlayers", "100");
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("ExecutionMode", "Pool");
+        properties.setProperty("LoadThreads", "2");
+        properties.setProperty("LoadStepSeconds", "0.3");
+        Config config = new Config(logger, properties);
+        return new LoadGenerator(logger, config, new UtilImpl(config));
+    }
+
+    @Test
+    void measure_ClaimsAtTheTargetRate() {
+        LoadGenerator generator = generator(new Properties());
+        generator.start();
+        LoadGenerator.Step step = generator.measure(3000);
+        generator.shutdown();
+
+        assertTrue(step.presses > 0);
+        assertTrue(step.accepted <= step.presses);
+        assertEquals(step.presses - step.accepted, step.dropped());
+        assertTrue(step.latency.count() > 0);
+        assertTrue(step.maxQueueDepth >= step.meanQueueDepth);
+    }
+
+    @Test
+    void findSaturation_StopsAtTheLatencyLimit() {
+        Properties properties = new Properties();
+        properties.setProperty("LoadStartRate", "5000");
+        properties.setProperty("LoadBurstFactor", "4");
+        properties.setProperty("LoadBurstSeconds", "0.1");
+        properties.setProperty("LoadLatencyLimitSeconds", "0"); // every claim exceeds it
+        LoadGenerator generator = generator(properties);
+        generator.start();
+        List<LoadGenerator.Step> steps = new ArrayList<>();
+        LoadGenerator.Saturation saturation = generator.findSaturation(steps);
+        generator.shutdown();
+
+        assertTrue(saturation.saturated);
+        assertNull(saturation.point);
+        assertEquals(1, steps.size());
+        assertFalse(steps.get(0).latency.count() == 0);
+    }
+}
@@ -0,0 +1,142 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilTest {
+
+    Config config;
+    UtilImpl util;
+    private List<Integer> deck;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        Logger logger = Logger.getAnonymousLogger();
+        config = new Config(logger, properties);
+        util = new UtilImpl(config);
+        deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+    }
+
+    private void assertSameSets(List<int[]> expected, List<int[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<int[]> it = actual.iterator();
+        for (int[] set : expected)
+            assertArrayEquals(set, it.next());
+    }
+
+    private void assertSameAsUtilImpl(Util other) {
+        assertSameSets(util.findSets(deck, Integer.MAX_VALUE), other.findSets(deck, Integer.MAX_VALUE));
+        assertSameSets(util.findSets(deck, Integer.MAX_VALUE), other.streamSets(deck).collect(Collectors.toList()));
+        assertEquals(1080, other.streamSets(deck).parallel().count());
+
+        Random random = new Random(42);
+        for (int round = 0; round < 20; ++round) {
+            Collections.shuffle(deck, random);
+            List<Integer> cards = deck.subList(0, 12 + round);
+            assertSameSets(util.findSets(cards, Integer.MAX_VALUE), other.findSets(cards, Integer.MAX_VALUE));
+            assertSameSets(util.findSets(cards, 1), other.findSets(cards, 1));
+            assertSameSets(util.findSets(cards, 1), other.streamSets(cards).limit(1).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void findSets_FullDeck() {
+
+        assertEquals(1080, util.findSets(deck, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void streamSets_SameAsFindSets() {
+
+        assertSameAsUtilImpl(util);
+        assertArrayEquals(util.findSets(deck, 2).get(1), util.streamSets(deck).skip(1).findFirst().orElse(null));
+        assertEquals(0, util.streamSets(deck.subList(0, 2)).count());
+    }
+
+    @Test
+    void testSet_PrimitiveMatchesArray() {
+
+        Random random = new Random(7);
+        for (int round = 0; round < 10000; ++round) {
+            int a = random.nextInt(config.deckSize), b = random.nextInt(config.deckSize), c = random.nextInt(config.deckSize);
+            assertEquals(util.testSet(new int[]{a, b, c}), util.testSet(a, b, c));
+        }
+        for (int[] set : util.findSets(deck, Integer.MAX_VALUE))
+            assertTrue(util.testSet(set[0], set[1], set[2]));
+    }
+
+    @Test
+    void thirdCard_CompletesSet() {
+
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b) {
+                int c = util.thirdCard(a, b);
+                assertTrue(c != a && c != b && util.testSet(a, b, c));
+            }
+    }
+
+    @Test
+    void cardToFeatures_MatchesCardId() {
+
+        assertArrayEquals(new int[]{0, 0, 0, 0}, util.cardToFeatures(0));
+        assertArrayEquals(new int[]{1, 0, 2, 1}, util.cardToFeatures(27 + 6 + 1));
+        assertArrayEquals(new int[]{2, 2, 2, 2}, util.cardToFeatures(80));
+    }
+
+    @Test
+    void findSets_PairCompletion() {
+
+        assertSameAsUtilImpl(new PairCompletionUtil(config));
+    }
+
+    @Test
+    void findSets_PairCompletionParallel() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "6");
+        properties.put("ParallelSearchThreshold", "100");
+        Config large = new Config(Logger.getAnonymousLogger(), properties);
+        List<Integer> largeDeck = IntStream.range(0, large.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(largeDeck, new Random(3));
+
+        Util parallel = new PairCompletionUtil(large);
+        assertSameSets(new BitSlicedUtil(large).findSets(largeDeck, Integer.MAX_VALUE), parallel.findSets(largeDeck, Integer.MAX_VALUE));
+        assertEquals(5, parallel.findSets(largeDeck, 5).size());
+        for (int[] set : parallel.findSets(largeDeck, 5))
+            assertTrue(parallel.testSet(set[0], set[1], set[2]));
+    }
+
+    @Test
+    void findSets_BitSliced() {
+
+        assertSameAsUtilImpl(new BitSlicedUtil(config));
+    }
+
+    @Test
+    void testSet_BitSliced() {
+
+        BitSlicedUtil bitSliced = new BitSlicedUtil(config);
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = 0; b < config.deckSize; b += 7)
+                for (int c = 0; c < config.deckSize; c += 5)
+                    assertEquals(util.testSet(a, b, c), bitSliced.testSet(a, b, c));
+    }
+}
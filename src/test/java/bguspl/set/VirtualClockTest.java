@@ -0,0 +1,76 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualClockTest {
+
+    @Test
+    void parkUntil_JumpsToEarliestDeadline() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        clock.register();
+        clock.register();
+        AtomicLong wokeAt = new AtomicLong();
+        Thread other = new Thread(() -> {
+            while (clock.millis() < 1000) clock.parkUntil(1000);
+            wokeAt.set(clock.millis());
+            clock.deregister();
+        });
+        other.start();
+
+        // the time stands still while this party is busy
+        Thread.sleep(50);
+        assertEquals(0, clock.millis());
+
+        clock.sleep(500);
+        assertEquals(500, clock.millis());
+
+        clock.sleep(5000);
+        other.join();
+        assertEquals(1000, wokeAt.get());
+        assertEquals(5500, clock.millis());
+    }
+
+    @Test
+    void unpark_WakesBeforeDeadline() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        clock.register();
+        clock.register(); // a party that stays busy, so the time cannot advance
+        Thread parked = new Thread(() -> clock.parkUntil(1000));
+        parked.start();
+        Thread.sleep(50);
+        clock.unpark(parked);
+        parked.join();
+        assertEquals(0, clock.millis());
+    }
+
+    @Test
+    void settle_WaitsForTheOtherParties() throws InterruptedException {
+        VirtualClock clock = new VirtualClock();
+        clock.register();
+        clock.register();
+        AtomicBoolean waiting = new AtomicBoolean();
+        Thread other = new Thread(() -> {
+            try {
+                Thread.sleep(100); // busy at time 0
+            } catch (InterruptedException ignored) {}
+            waiting.set(true);
+            while (clock.millis() < 1000) clock.parkUntil(1000);
+            clock.deregister();
+        });
+        other.start();
+
+        clock.settle();
+        assertTrue(waiting.get());
+        assertEquals(0, clock.millis()); // the time did not move on while settling
+
+        clock.deregister();
+        other.join();
+        assertEquals(1000, clock.millis());
+    }
+}
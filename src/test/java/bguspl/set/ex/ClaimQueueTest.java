@@ -0,0 +1,79 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimQueueTest {
+
+    private static final int[] EPOCHS = {0, 0, 0};
+
+    @Test
+    void offer_RejectedWhenFull() {
+        ClaimQueue queue = new ClaimQueue(3);
+        assertEquals(4, queue.capacity());
+
+        for (int i = 0; i < queue.capacity(); i++)
+            assertTrue(queue.offer(new int[]{i, i + 1, i + 2}, EPOCHS, i, true));
+        assertFalse(queue.offer(new int[]{0, 1, 2}, EPOCHS, 0, true));
+        assertEquals(1, queue.rejected());
+
+        ClaimQueue.Claim claim = new ClaimQueue.Claim();
+        assertTrue(queue.poll(claim));
+        assertEquals(0, claim.player);
+        assertTrue(queue.offer(new int[]{0, 1, 2}, EPOCHS, 9, true));
+        assertEquals(4, queue.size());
+    }
+
+    @Test
+    void drain_InOrder() {
+        ClaimQueue queue = new ClaimQueue(8);
+        for (int i = 0; i < 5; i++)
+            queue.offer(new int[]{i, i, i}, new int[]{i, 0, 0}, i, i % 2 == 0);
+
+        ClaimQueue.Claim[] batch = new ClaimQueue.Claim[8];
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = new ClaimQueue.Claim();
+        assertEquals(5, queue.drain(batch));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, batch[i].player);
+            assertEquals(i, batch[i].slots[2]);
+            assertEquals(i, batch[i].epochs[0]);
+            assertEquals(i % 2 == 0, batch[i].legal);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void offer_ManyProducers() throws InterruptedException {
+        int producers = 4, claimsEach = 5000;
+        ClaimQueue queue = new ClaimQueue(16);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int player = p;
+            threads[p] = new Thread(() -> {
+                int[] slots = new int[3];
+                for (int i = 0; i < claimsEach; i++)
+                    for (slots[0] = i; !queue.offer(slots, EPOCHS, player, false); )
+                        Thread.yield();
+            });
+            threads[p].start();
+        }
+
+        // claims of each producer arrive in the order they were submitted, and none is lost
+        int[] next = new int[producers];
+        ClaimQueue.Claim claim = new ClaimQueue.Claim();
+        for (int received = 0; received < producers * claimsEach; ) {
+            if (queue.poll(claim)) {
+                assertEquals(next[claim.player]++, claim.slots[0]);
+                received++;
+            } else {
+                Thread.yield();
+            }
+        }
+        for (Thread thread : threads) thread.join();
+        assertTrue(queue.isEmpty());
+    }
+}
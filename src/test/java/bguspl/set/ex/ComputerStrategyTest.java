@@ -0,0 +1,120 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComputerStrategyTest {
+
+    private Env env;
+    private Table table;
+    private Player player;
+
+    /**
+     * Creates a Seeking player that reacts at once, at a 3x4 table.
+     *
+     * @param skill - the probability that the player claims a legal set.
+     * @param cards - the cards to place on the first slots.
+     * @return      - the player's strategy.
+     */
+    private ComputerStrategy seeking(double skill, int... cards) {
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("ComputerStrategy", "Seeking");
+        properties.put("ComputerSkill", Double.toString(skill));
+        properties.put("ComputerReactionSeconds", "0");
+        properties.put("ComputerReactionDeviationSeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env);
+        for (int slot = 0; slot < cards.length; slot++)
+            table.placeCard(cards[slot], slot);
+        player = new Player(env, null, table, 0, false);
+        return ComputerStrategy.create(env, table, player);
+    }
+
+    /**
+     * @return - the presses of the next claim the strategy plans (the presses are not made, so the player's tokens
+     *           stay as they are).
+     */
+    private List<Integer> nextClaim(ComputerStrategy strategy) {
+        List<Integer> presses = new ArrayList<>();
+        int slot = strategy.nextSlot();
+        if (slot == -1) slot = strategy.nextSlot(); // the first call starts looking at the table
+        for (; slot != -1; slot = strategy.nextSlot())
+            presses.add(slot);
+        return presses;
+    }
+
+    private boolean isSet(List<Integer> slots) {
+        return env.util.testSet(table.cardAt(slots.get(0)), table.cardAt(slots.get(1)), table.cardAt(slots.get(2)));
+    }
+
+    @Test
+    void nextSlot_SkilledPlayerClaimsSet() {
+        ComputerStrategy strategy = seeking(1, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+        for (int claim = 0; claim < 10; claim++) {
+            List<Integer> presses = nextClaim(strategy);
+            assertEquals(3, presses.size());
+            assertEquals(3, new HashSet<>(presses).size());
+            assertTrue(isSet(presses));
+        }
+    }
+
+    @Test
+    void nextSlot_UnskilledPlayerClaimsNonSet() {
+        ComputerStrategy strategy = seeking(0, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+        for (int claim = 0; claim < 10; claim++) {
+            List<Integer> presses = nextClaim(strategy);
+            assertEquals(3, presses.size());
+            assertEquals(3, new HashSet<>(presses).size());
+            assertFalse(isSet(presses));
+        }
+    }
+
+    @Test
+    void nextSlot_TokensOutsideTargetRemovedFirst() {
+        // the only set on the table is in slots 0-2, and the player has tokens on slots 3 and 2
+        ComputerStrategy strategy = seeking(1, 0, 1, 2, 3, 13);
+        assertEquals(1, table.sets().size());
+        table.placeToken(player, 3, table.epochAt(3), false);
+        table.placeToken(player, 2, table.epochAt(2), false);
+
+        List<Integer> presses = nextClaim(strategy);
+        assertEquals(3, presses.size());
+        assertEquals(3, (int) presses.get(0));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1)), new HashSet<>(presses.subList(1, 3)));
+    }
+
+    @Test
+    void nextSlot_PlanDroppedWhenTargetChanges() {
+        ComputerStrategy strategy = seeking(1, 0, 1, 2, 3, 13);
+        assertEquals(-1, strategy.nextSlot());
+        int first = strategy.nextSlot();
+        assertTrue(first >= 0 && first <= 2);
+
+        // another player takes a card of the set, and the slot is refilled with a card that makes no set
+        int taken = first == 0 ? 1 : 0;
+        table.removeCard(taken);
+        table.placeCard(40, taken);
+        assertTrue(table.sets().isEmpty());
+        assertEquals(-1, strategy.nextSlot()); // looks at the table again
+        assertEquals(-1, strategy.nextSlot()); // and finds no set to claim
+    }
+}
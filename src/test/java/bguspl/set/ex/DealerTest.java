@@ -0,0 +1,214 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealerTest {
+
+    Dealer dealer;
+    Table table;
+    Player[] players;
+    private Env env;
+
+    /**
+     * The number of times a card was removed from each slot and placed on it.
+     */
+    private int[] removals, placements;
+
+    /**
+     * The last freeze time displayed for each player.
+     */
+    private long[] freezes;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "1");
+        properties.put("PenaltyFreezeSeconds", "3");
+        properties.put("HumanPlayers", "2");
+        properties.put("ComputerPlayers", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        removals = new int[config.tableSize];
+        placements = new int[config.tableSize];
+        freezes = new long[config.players];
+        env = new Env(logger, config, new TableTest.MockUserInterface() {
+            @Override
+            public void placeCard(int card, int slot) {
+                placements[slot]++;
+            }
+
+            @Override
+            public void removeCard(int slot) {
+                removals[slot]++;
+            }
+
+            @Override
+            public void setFreeze(int player, long millies) {
+                freezes[player] = millies;
+            }
+        }, new UtilImpl(config));
+        table = new Table(env);
+        players = new Player[config.players];
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, true);
+        dealer.placeCardsOnTable(); // the deck is not shuffled yet, so the same cards are dealt every time
+    }
+
+    /**
+     * @return - the slots of the cards of a legal set on the table.
+     */
+    private int[] setSlots() {
+        return toSlots(env.util.findSets(table.cards(), 1).get(0));
+    }
+
+    private int[] toSlots(int[] cards) {
+        int[] slots = new int[cards.length];
+        for (int i = 0; i < cards.length; i++)
+            slots[i] = table.slotOf(cards[i]);
+        return slots;
+    }
+
+    private void claim(Player player, int[] slots) {
+        for (int slot : slots)
+            player.pressKey(slot);
+    }
+
+    @Test
+    void removeCardsFromTable_LegalClaimScoresAndFreezes() {
+        claim(players[0], setSlots());
+        dealer.removeCardsFromTable();
+
+        assertEquals(1, players[0].getScore());
+        assertTrue(dealer.isFrozen(0));
+        assertFalse(dealer.isFrozen(1));
+    }
+
+    /**
+     * @return - the slots of three cards on the table that are not a legal set.
+     */
+    private int[] notSetSlots() {
+        List<Integer> cards = table.cards();
+        for (int a = 0; a < cards.size(); a++)
+            for (int b = a + 1; b < cards.size(); b++)
+                for (int c = b + 1; c < cards.size(); c++)
+                    if (!env.util.testSet(cards.get(a), cards.get(b), cards.get(c)))
+                        return toSlots(new int[]{cards.get(a), cards.get(b), cards.get(c)});
+        throw new IllegalStateException("every three cards on the table are a set");
+    }
+
+    private int[] epochs(int[] slots) {
+        int[] epochs = new int[slots.length];
+        for (int i = 0; i < slots.length; i++)
+            epochs[i] = table.epochAt(slots[i]);
+        return epochs;
+    }
+
+    @Test
+    void removeCardsFromTable_WrongClaimPenalized() {
+        claim(players[0], notSetSlots());
+        dealer.removeCardsFromTable();
+
+        assertEquals(0, players[0].getScore());
+        assertTrue(dealer.isFrozen(0));
+        assertEquals(env.config.tableSize, table.cards().size()); // no card was removed
+    }
+
+    @Test
+    void removeCardsFromTable_StaleClaimNotFrozen() {
+        int[] slots = setSlots();
+        claim(players[0], slots);
+        int card = table.cardAt(slots[0]);
+        table.removeCard(slots[0]); // the card is replaced before the dealer checks the claim
+        table.placeCard(card, slots[0]);
+        dealer.removeCardsFromTable();
+
+        assertEquals(0, players[0].getScore());
+        assertFalse(dealer.isFrozen(0));
+    }
+
+    @Test
+    void removeCardsFromTable_EarlierClaimWinsSharedSlot() {
+        // two sets on the table that share exactly one card
+        List<int[]> sets = env.util.findSets(table.cards(), Integer.MAX_VALUE);
+        int[] first = null, second = null;
+        for (int i = 0; first == null; i++)
+            for (int j = i + 1; j < sets.size() && first == null; j++)
+                if (shared(sets.get(i), sets.get(j)) == 1) {
+                    first = toSlots(sets.get(i));
+                    second = toSlots(sets.get(j));
+                }
+        claim(players[0], first);
+        claim(players[1], second); // queued after the first claim, before the dealer checks either
+        dealer.removeCardsFromTable();
+        dealer.placeCardsOnTable();
+
+        assertEquals(1, players[0].getScore());
+        assertEquals(0, players[1].getScore());
+        assertFalse(dealer.isFrozen(1)); // lost to the earlier claim, which is not its fault
+        for (int slot = 0; slot < env.config.tableSize; slot++) {
+            boolean replaced = contains(first, slot);
+            assertEquals(replaced ? 1 : 0, removals[slot]);
+            assertEquals(replaced ? 2 : 1, placements[slot]);
+        }
+        assertEquals(env.config.tableSize, table.countCards());
+    }
+
+    @Test
+    void pressKey_IgnoredWhileClaimPending() {
+        int[] slots = notSetSlots();
+        claim(players[0], slots);
+        players[0].pressKey(slots[2]); // would remove a token of the claim, to claim another card instead
+        assertEquals(3, players[0].tokenCount);
+        assertEquals(1, table.claims.size());
+
+        dealer.removeCardsFromTable();
+        assertTrue(dealer.isFrozen(0));
+        assertFalse(players[0].claimPending);
+    }
+
+    @Test
+    void removeCardsFromTable_PenaltyKeptOverLaterClaim() {
+        // a wrong claim and a legal one of the same player in one batch
+        int[] wrong = notSetSlots(), legal = setSlots();
+        table.claims.offer(wrong, epochs(wrong), 0, false);
+        table.claims.offer(legal, epochs(legal), 0, true);
+        dealer.removeCardsFromTable();
+
+        assertEquals(0, players[0].getScore());
+        assertTrue(freezes[0] > env.config.pointFreezeMillis); // the penalty
+        assertEquals(env.config.tableSize, table.countCards());
+
+        dealer.freeze(0, env.config.pointFreezeMillis); // a shorter freeze does not cut the penalty short
+        assertTrue(freezes[0] > env.config.pointFreezeMillis);
+    }
+
+    private static int shared(int[] set1, int[] set2) {
+        int shared = 0;
+        for (int card : set1)
+            if (contains(set2, card)) shared++;
+        return shared;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values)
+            if (v == value) return true;
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyPressQueueTest {
+
+    @Test
+    void offer_DroppedWhenFull() {
+        KeyPressQueue queue = new KeyPressQueue(3);
+        for (int slot = 0; slot < 3; slot++)
+            assertTrue(queue.offer(slot));
+        assertFalse(queue.offer(7));
+        assertEquals(1, queue.dropped());
+        assertEquals(0, queue.remainingCapacity());
+
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(7));
+        assertEquals(1, queue.poll());
+        assertEquals(2, queue.poll());
+        assertEquals(7, queue.poll());
+        assertEquals(KeyPressQueue.EMPTY, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void take_InterruptedWhileEmpty() {
+        KeyPressQueue queue = new KeyPressQueue(3);
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, queue::take);
+    }
+
+    @Test
+    void putAndTake_ProducerAndConsumer() throws InterruptedException {
+        int presses = 100000;
+        KeyPressQueue queue = new KeyPressQueue(3);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < presses; i++)
+                    queue.put(i % 12);
+            } catch (InterruptedException ignored) {}
+        });
+        producer.start();
+
+        // the presses arrive in the order they were made, and none is lost
+        for (int i = 0; i < presses; i++)
+            assertEquals(i % 12, queue.take());
+        producer.join();
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.dropped());
+    }
+
+    @Test
+    void offerAndPut_TwoProducers() throws InterruptedException {
+        // the input thread offers presses while the AI puts its own, as for a computer player with mapped keys
+        int pressesEach = 50000;
+        KeyPressQueue queue = new KeyPressQueue(3);
+        Thread ai = new Thread(() -> {
+            try {
+                for (int i = 0; i < pressesEach; i++)
+                    queue.put(2 * i);
+            } catch (InterruptedException ignored) {}
+        });
+        Thread input = new Thread(() -> {
+            for (int i = 0; i < pressesEach; i++)
+                while (!queue.offer(2 * i + 1))
+                    Thread.yield();
+        });
+        ai.start();
+        input.start();
+
+        // the presses of each producer arrive in the order they were made, and none is lost or duplicated
+        int[] next = new int[2];
+        for (int i = 0; i < 2 * pressesEach; i++) {
+            int press = queue.take();
+            assertEquals(next[press % 2]++, press / 2);
+        }
+        ai.join();
+        input.join();
+        assertTrue(queue.isEmpty());
+        assertEquals(pressesEach, next[0]);
+        assertEquals(pressesEach, next[1]);
+    }
+}
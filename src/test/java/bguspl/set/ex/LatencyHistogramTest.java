@@ -0,0 +1,70 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyHistogramTest {
+
+    private static LatencyHistogram histogram(long... nanos) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long n : nanos)
+            histogram.record(n);
+        return histogram;
+    }
+
+    @Test
+    void record_CountMeanAndMax() {
+        LatencyHistogram histogram = histogram(1, 100, 1000, 5000);
+        assertEquals(4, histogram.count());
+        assertEquals(6101 / 4, histogram.mean());
+        assertEquals(5000, histogram.max());
+
+        histogram.record(-5); // recorded as 0
+        assertEquals(5, histogram.count());
+        assertEquals(5000, histogram.max());
+    }
+
+    @Test
+    void percentile_UpperBoundOfBucket() {
+        LatencyHistogram histogram = histogram(1, 100, 1000, 5000);
+        assertEquals(1, histogram.percentile(0.01));
+        assertEquals(127, histogram.percentile(0.5)); // 100 is in the bucket [64, 127]
+        assertEquals(1023, histogram.percentile(0.75)); // 1000 is in the bucket [512, 1023]
+        assertEquals(5000, histogram.percentile(1)); // bounded by the maximum, not the bucket [4096, 8191]
+
+        assertEquals(0, new LatencyHistogram().percentile(0.99));
+    }
+
+    @Test
+    void add_MergesCountsAndMax() {
+        LatencyHistogram histogram = histogram(1, 100, 1000, 5000);
+        histogram.add(histogram(2000000, 10));
+        assertEquals(6, histogram.count());
+        assertEquals(2000000, histogram.max());
+        assertEquals((6101 + 2000010) / 6, histogram.mean());
+        assertEquals(2000000, histogram.percentile(1));
+        assertEquals(127, histogram.percentile(0.5));
+    }
+
+    @Test
+    void since_OnlyTheNewLatencies() {
+        LatencyHistogram histogram = histogram(1, 100, 1000, 5000);
+        LatencyHistogram earlier = new LatencyHistogram();
+        earlier.add(histogram);
+        histogram.record(300);
+        histogram.record(40);
+
+        LatencyHistogram since = histogram.since(earlier);
+        assertEquals(2, since.count());
+        assertEquals(170, since.mean());
+        assertEquals(63, since.percentile(0.5)); // 40 is in the bucket [32, 63]
+        // the maximum is bounded by the highest new bucket ([256, 511]), not the overall maximum
+        assertEquals(511, since.max());
+        assertEquals(511, since.percentile(1));
+
+        LatencyHistogram nothing = histogram.since(histogram);
+        assertEquals(0, nothing.count());
+        assertEquals(0, nothing.max());
+    }
+}
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.when;
 class PlayerTest {
 
     Player player;
+    Env env;
     @Mock
     Util util;
     @Mock
@@ -42,7 +43,7 @@ class PlayerTest {
     @BeforeEach
     void setUp() {
         // purposely do not find the configuration files (use defaults here).
-        Env env = new Env(logger, new Config(logger, ""), ui, util);
+        env = new Env(logger, new Config(logger, ""), ui, util);
         player = new Player(env, dealer, table, 0, false);
         assertInvariants();
     }
@@ -70,4 +71,13 @@ class PlayerTest {
         // check that ui.setScore was called with the player's id and the correct score
         verify(ui).setScore(eq(player.id), eq(expectedScore));
     }
+
+    @Test
+    void penalty() {
+
+        player.penalty();
+
+        // check that the dealer was asked to freeze the player for the penalty time
+        verify(dealer).freeze(eq(player.id), eq(env.config.penaltyFreezeMillis));
+    }
 }
\ No newline at end of file
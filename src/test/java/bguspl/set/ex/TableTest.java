@@ -4,20 +4,30 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 class TableTest {
 
     Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
+    private int[] slotToCard;
+    private int[] cardToSlot;
+
+    private Config config;
+    private MockLogger logger;
+    private Env env;
 
     @BeforeEach
     void setUp() {
@@ -30,12 +40,14 @@ class TableTest {
         properties.put("TableDelaySeconds", "0");
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
-        MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
+        logger = new MockLogger();
+        config = new Config(logger, properties);
+        slotToCard = new int[config.tableSize];
+        cardToSlot = new int[config.deckSize];
+        Arrays.fill(slotToCard, Table.EMPTY);
+        Arrays.fill(cardToSlot, Table.EMPTY);
 
-        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
+        env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
@@ -95,6 +107,105 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void removeCard_EmptiesSlot() {
+        fillSomeSlots();
+        table.removeCard(1);
+
+        assertEquals(Table.EMPTY, table.cardAt(1));
+        assertEquals(Table.EMPTY, table.slotOf(3));
+        assertEquals(1, table.countCards());
+
+        // removing from an empty slot does nothing
+        table.removeCard(1);
+        assertEquals(1, table.countCards());
+    }
+
+    @Test
+    void sets_UpdatedOnPlaceAndRemove() {
+        table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)), slotToCard, cardToSlot);
+
+        // cards 0, 1 and 2 differ only in the last feature, which is different in all of them
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(4, 3);
+        assertFalse(table.hasSets());
+
+        table.placeCard(2, 2);
+        assertEquals(1, table.sets().size());
+        assertArrayEquals(new int[]{0, 1, 2}, table.sets().get(0));
+
+        table.removeCard(1);
+        assertFalse(table.hasSets());
+    }
+
+    @Test
+    void sets_CachedByTableHash() {
+        Env env = new Env(logger, config, new MockUserInterface(), new UtilImpl(config));
+        table = new Table(env, slotToCard, cardToSlot);
+
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(2, 2);
+        long hash = table.hash();
+        long hits = env.setCache.hits();
+
+        table.removeCard(2);
+        table.placeCard(2, 3);
+        assertEquals(hash, table.hash());
+        assertEquals(hits + 2, env.setCache.hits());
+        assertEquals(1, table.sets().size());
+    }
+
+    @Test
+    void placeToken_ConcurrentPlayers() throws InterruptedException {
+        int rounds = 1000;
+        Player[] players = new Player[8];
+        Thread[] threads = new Thread[players.length];
+        AtomicInteger submitted = new AtomicInteger();
+        for (int i = 0; i < players.length; i++) {
+            Player player = players[i] = new Player(env, null, table, i, true);
+            threads[i] = new Thread(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    for (int slot = 0; slot < 3; slot++)
+                        if (table.placeToken(player, slot, table.epochAt(slot), false) && slot == 2) submitted.incrementAndGet();
+                    for (int slot = 0; slot < 3; slot++) table.removeToken(player, slot);
+                }
+            });
+        }
+        for (Thread thread : threads) thread.start();
+
+        // drain the claims as the dealer would, while the players are submitting them
+        int received = 0;
+        ClaimQueue.Claim claim = new ClaimQueue.Claim();
+        boolean running = true;
+        while (running || !table.claims.isEmpty()) {
+            running = false;
+            for (Thread thread : threads) running |= thread.isAlive();
+            while (table.claims.poll(claim)) {
+                assertArrayEquals(new int[]{0, 1, 2}, claim.slots);
+                received++;
+            }
+            Thread.yield();
+        }
+
+        assertEquals(submitted.get(), received);
+        for (Player player : players)
+            assertEquals(0, player.tokenCount);
+    }
+
+    @Test
+    void cardAt_StaleEpoch() {
+        table.placeCard(8, 2);
+        int epoch = table.epochAt(2);
+        assertEquals(8, table.cardAt(2, epoch));
+
+        table.removeCard(2);
+        table.placeCard(8, 2);
+        assertEquals(Table.EMPTY, table.cardAt(2, epoch));
+        assertEquals(epoch + 2, table.epochAt(2));
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void placeCard(int card, int slot) {}
@@ -136,10 +247,25 @@ class TableTest {
             return false;
         }
 
+        @Override
+        public boolean testSet(int a, int b, int c) {
+            return false;
+        }
+
+        @Override
+        public int thirdCard(int a, int b) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;
         }
+
+        @Override
+        public Stream<int[]> streamSets(List<Integer> deck) {
+            return Stream.empty();
+        }
     }
 
     static class MockLogger extends Logger {